@@ -41,10 +41,15 @@ import org.paxml.util.ReflectUtils.PropertyDescriptorType;
  * For example, if an invoker tag has attribute "abc" or sub element "abc", the
  * property "abc" of such a object will be set to the given value.
  * 
+ * The properties are never set on the parsed tag itself: every invocation
+ * works on its own shallow copy of the tag, so that a parsed tag tree can be
+ * executed by many threads at once. Subclasses must not keep state in mutable
+ * objects created at parse time.
+ * 
  * @author Xuetao Niu
  * 
  */
-public abstract class BeanTag extends AbstractInvokerTag {
+public abstract class BeanTag extends AbstractInvokerTag implements Cloneable {
 	/**
 	 * Property value visitor.
 	 * 
@@ -56,6 +61,7 @@ public abstract class BeanTag extends AbstractInvokerTag {
 	}
 
 	private final List<PropertyDescriptor> settableProperties = findSettableProperties(getClass());
+	private volatile Set<String> settablePropertyNames;
 
 	private Object value;
 
@@ -102,16 +108,15 @@ public abstract class BeanTag extends AbstractInvokerTag {
 		// initialProperties.put(pd.getName(), getPropertyValue(pd.getName()));
 		// }
 		if (strictOnPropertyNames(context)) {
-			Set<String> props = new HashSet<String>(settableProperties.size());
-			for (PropertyDescriptor pd : settableProperties) {
-				props.add(pd.getName());
-			}
-			assertNoExcessiveParameters(props, context);
+			assertNoExcessiveParameters(getSettablePropertyNames(), context);
 		}
-		preValueInjection();
+		// inject into a copy so that this tag stays untouched
+		final BeanTag bean = newInvocation();
+
+		bean.preValueInjection();
 
 		// put the properties from context
-		populateProperties(false, new IPropertyValueReader() {
+		bean.populateProperties(false, new IPropertyValueReader() {
 
 			public Object getValue(String name) {
 				Object obj = context.getConst(name, true);
@@ -120,9 +125,9 @@ public abstract class BeanTag extends AbstractInvokerTag {
 
 		});
 
-		afterPropertiesInjection(context);
+		bean.afterPropertiesInjection(context);
 
-		Object result = doInvoke(context);
+		Object result = bean.doInvoke(context);
 
 		// restore the properties
 		// populateProperties(true, new IPropertyValueReader() {
@@ -135,6 +140,31 @@ public abstract class BeanTag extends AbstractInvokerTag {
 		return result;
 	}
 
+	/**
+	 * Create the object to inject the properties into for one invocation.
+	 * 
+	 * @return a shallow copy of this tag
+	 */
+	private BeanTag newInvocation() {
+		try {
+			return (BeanTag) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new PaxmlRuntimeException("Cannot copy tag: " + getClass().getName(), e);
+		}
+	}
+
+	private Set<String> getSettablePropertyNames() {
+		Set<String> names = settablePropertyNames;
+		if (names == null) {
+			names = new HashSet<String>(settableProperties.size());
+			for (PropertyDescriptor pd : settableProperties) {
+				names.add(pd.getName());
+			}
+			settablePropertyNames = names;
+		}
+		return names;
+	}
+
 	/**
 	 * Flag if the given params must match the property names.
 	 * 
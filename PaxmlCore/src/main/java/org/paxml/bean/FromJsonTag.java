@@ -16,6 +16,11 @@
  */
 package org.paxml.bean;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
 import org.paxml.annotation.Tag;
 import org.paxml.core.Context;
 import org.paxml.util.XmlUtils;
@@ -40,6 +45,18 @@ public class FromJsonTag extends BeanTag {
 		if (val == null) {
 			return null;
 		}
+		if (val instanceof InputStream) {
+			return XmlUtils.fromJson((InputStream) val);
+		}
+		if (val instanceof File) {
+			// e.g. a response body streamed into a file
+			InputStream in = new FileInputStream((File) val);
+			try {
+				return XmlUtils.fromJson(in);
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+		}
 		
 		return XmlUtils.fromJson(val.toString(), true);
 	}
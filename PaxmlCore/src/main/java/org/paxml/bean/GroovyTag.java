@@ -17,20 +17,34 @@
 package org.paxml.bean;
 
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import groovy.lang.MissingPropertyException;
+import groovy.lang.Script;
 
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.paxml.annotation.Tag;
 import org.paxml.core.Context;
 import org.paxml.el.IUtilFunctionsFactory;
-import org.paxml.tag.ITagLibrary;
+import org.paxml.launch.Paxml;
 import org.paxml.util.ReflectUtils;
 
 /**
- * Groovy tag impl.
+ * Groovy tag impl. The compiled script classes are cached per script text and
+ * class loader, and the context consts and util functions are looked up only
+ * when the script reads them.
  * 
  * @author Xuetao Niu
  * 
@@ -39,33 +53,175 @@ import org.paxml.util.ReflectUtils;
 public class GroovyTag extends BeanTag {
     private static final Log log = LogFactory.getLog(GroovyTag.class);
 
-    @Override
-    protected Object doInvoke(Context context) throws Exception {
-        Binding binding = new Binding();
-        // inject all context variables into groovy
-        for (Map.Entry<String, Object> entry : context.getIdMap(true, true).entrySet()) {
-            binding.setVariable(entry.getKey(), entry.getValue());
+    /**
+     * Max number of cached script classes per class loader.
+     */
+    public static final int MAX_CACHED_SCRIPTS = 1000;
+
+    private static final Map<ClassLoader, ScriptCache> CACHES = new WeakHashMap<ClassLoader, ScriptCache>();
+
+    /**
+     * Class loader that delegates to another one without holding it strongly,
+     * so that a cache value does not keep its own weak key alive.
+     * 
+     * @author Xuetao Niu
+     * 
+     */
+    private static class WeakDelegatingClassLoader extends ClassLoader {
+        private final WeakReference<ClassLoader> target;
+
+        private WeakDelegatingClassLoader(ClassLoader target) {
+            super(null);
+            this.target = new WeakReference<ClassLoader>(target);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            ClassLoader t = target.get();
+            if (t == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return t.loadClass(name);
+        }
+
+        @Override
+        protected URL findResource(String name) {
+            ClassLoader t = target.get();
+            return t == null ? null : t.getResource(name);
+        }
+
+        @Override
+        protected Enumeration<URL> findResources(String name) throws IOException {
+            ClassLoader t = target.get();
+            return t == null ? Collections.enumeration(Collections.<URL> emptyList()) : t.getResources(name);
         }
-        // set the util functions
-        for (ITagLibrary tagLib : context.getPaxml().getParser().getTagLibraries()) {
-            for (String util : tagLib.getUtilFunctionsFactoryNames()) {
-                Class<? extends IUtilFunctionsFactory> clazz = (Class<? extends IUtilFunctionsFactory>) tagLib
-                        .getUtilFunctionsFactory(util);
-                if (clazz != null) {
-                    Object utilObj = ReflectUtils.createObject(clazz).getUtilFunctions(context);
-                    if (utilObj != null) {
-                        binding.setVariable(util, utilObj);
-                    }
+    }
+
+    /**
+     * The compiled scripts of a class loader, the least recently used ones
+     * are dropped when there are too many.
+     * 
+     * @author Xuetao Niu
+     * 
+     */
+    private static class ScriptCache {
+        private final AtomicLong counter = new AtomicLong();
+        private final GroovyClassLoader loader;
+        private final Map<String, Class<? extends Script>> scripts = new LinkedHashMap<String, Class<? extends Script>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Class<? extends Script>> eldest) {
+                return size() > MAX_CACHED_SCRIPTS;
+            }
+        };
+
+        private ScriptCache(ClassLoader parent) {
+            loader = new GroovyClassLoader(new WeakDelegatingClassLoader(parent));
+        }
+
+        private Class<? extends Script> getScriptClass(String text) {
+            Class<? extends Script> clazz;
+            synchronized (scripts) {
+                clazz = scripts.get(text);
+            }
+            if (clazz != null) {
+                return clazz;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Compiling groovy script: " + text);
+            }
+            GroovyCodeSource source = new GroovyCodeSource(text, "GroovyTagScript" + counter.incrementAndGet() + ".groovy", "/groovy/script");
+            // not cached by the class loader, so that the class can be
+            // unloaded once dropped from here
+            clazz = loader.parseClass(source, false);
+            synchronized (scripts) {
+                Class<? extends Script> existing = scripts.get(text);
+                if (existing != null) {
+                    return existing;
                 }
+                scripts.put(text, clazz);
             }
+            return clazz;
+        }
+    }
 
+    /**
+     * Binding that resolves the variables not set by the script from the
+     * context consts and then the util functions.
+     * 
+     * @author Xuetao Niu
+     * 
+     */
+    private static class ContextBinding extends Binding {
+        private final Context context;
+
+        private ContextBinding(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public Object getVariable(String name) {
+            Map vars = getVariables();
+            Object value = vars.get(name);
+            if (value != null || vars.containsKey(name)) {
+                return value;
+            }
+            Context holder = context.findConstContext(name);
+            if (holder != null) {
+                return holder.getConst(name, false);
+            }
+            value = getUtilFunctions(name);
+            if (value == null) {
+                throw new MissingPropertyException(name, getClass());
+            }
+            // create the util functions only once per execution
+            vars.put(name, value);
+            return value;
+        }
+
+        @Override
+        public boolean hasVariable(String name) {
+            return getVariables().containsKey(name) || context.hasConstId(name, true) || getUtilFunctionsFactory(name) != null;
+        }
+
+        private Class<? extends IUtilFunctionsFactory> getUtilFunctionsFactory(String name) {
+            final Paxml paxml = context.getPaxml();
+            return paxml == null ? null : paxml.getParser().getUtilFunctionsFactory(name);
+        }
+
+        private Object getUtilFunctions(String name) {
+            Class<? extends IUtilFunctionsFactory> clazz = getUtilFunctionsFactory(name);
+            if (clazz == null) {
+                return null;
+            }
+            return ReflectUtils.createObject(clazz).getUtilFunctions(context);
         }
+    }
 
-        GroovyShell shell = new GroovyShell(binding);
+    private static Class<? extends Script> getScriptClass(String text) {
+        ClassLoader parent = Thread.currentThread().getContextClassLoader();
+        if (parent == null) {
+            parent = GroovyTag.class.getClassLoader();
+        }
+        ScriptCache cache;
+        synchronized (CACHES) {
+            cache = CACHES.get(parent);
+            if (cache == null) {
+                cache = new ScriptCache(parent);
+                CACHES.put(parent, cache);
+            }
+        }
+        return cache.getScriptClass(text);
+    }
+
+    @Override
+    protected Object doInvoke(Context context) throws Exception {
 
         Object value = getValue();
 
-        Object result = shell.evaluate(String.valueOf(value));
+        // script instances are not thread safe, so create one per execution
+        Script script = InvokerHelper.createScript(getScriptClass(String.valueOf(value)), new ContextBinding(context));
+
+        Object result = script.run();
 
         return result;
     }
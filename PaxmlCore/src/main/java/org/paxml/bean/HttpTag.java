@@ -16,24 +16,41 @@
  */
 package org.paxml.bean;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.axiom.om.OMElement;
 import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpMethodBase;
+import org.apache.commons.httpclient.HttpState;
 import org.apache.commons.httpclient.NameValuePair;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.paxml.annotation.Tag;
 import org.paxml.core.Context;
 import org.paxml.core.PaxmlRuntimeException;
+import org.paxml.util.AxiomUtils;
+import org.paxml.util.HttpClientPool;
+import org.paxml.util.XmlUtils;
 
 /**
- * Http tag impl.
+ * Http tag impl. The response body is by default read into a string. With the
+ * responseType attribute it can instead be streamed into a file, or parsed
+ * straight from the response stream as json or xml. A temp file used when no
+ * file is given is deleted when the entity executing this tag exits, so it
+ * stays readable while that entity calls other entities.
  * 
  * @author Xuetao Niu
  * 
@@ -44,6 +61,10 @@ public class HttpTag extends BeanTag {
 	public static final int DEFAULT_MAX_RETRY = 5;
     public static final String ENTITY_NAME = "name";
     public static final String ENTITY_VALUE = "value";
+    public static final String RESPONSE_TYPE_STRING = "string";
+    public static final String RESPONSE_TYPE_FILE = "file";
+    public static final String RESPONSE_TYPE_JSON = "json";
+    public static final String RESPONSE_TYPE_XML = "xml";
     private String url;
     private boolean responseless = false;
     private Object header;
@@ -52,6 +73,8 @@ public class HttpTag extends BeanTag {
     private Object query;
     private int maxRetry = DEFAULT_MAX_RETRY;
     private boolean failOnError = true;
+    private String responseType = RESPONSE_TYPE_STRING;
+    private String file;
 
     /**
      * {@inheritDoc}
@@ -62,7 +85,7 @@ public class HttpTag extends BeanTag {
         if (!lowUrl.startsWith("http://") && !lowUrl.startsWith("https://")) {
             url = "http://" + url;
         }
-        HttpClient client = new HttpClient();
+        HttpClient client = HttpClientPool.getHttpClient(context);
         final HttpMethodBase m;
         if ("post".equalsIgnoreCase(method)) {
             m = setPostBody(new PostMethod(url));
@@ -81,7 +104,9 @@ public class HttpTag extends BeanTag {
         try {
             // Execute the method.
 
-            final int statusCode = client.executeMethod(m);
+            // a fresh state for each request, so that cookies never leak
+            // between unrelated requests sharing the pooled client
+            final int statusCode = client.executeMethod(null, m, new HttpState());
 
             if (responseless) {
                 return statusCode;
@@ -90,7 +115,7 @@ public class HttpTag extends BeanTag {
             // Read the response body.
             Map<String, Object> result = new LinkedHashMap<String, Object>();
             result.put("code", statusCode);
-            result.put("body", m.getResponseBodyAsString());
+            result.put("body", readBody(context, m));
             result.put("all", m);
             return result;
 
@@ -100,6 +125,53 @@ public class HttpTag extends BeanTag {
         }
     }
 
+    private Object readBody(Context context, HttpMethodBase m) throws Exception {
+        if (StringUtils.isBlank(responseType) || RESPONSE_TYPE_STRING.equalsIgnoreCase(responseType)) {
+            return m.getResponseBodyAsString();
+        }
+        final InputStream in = m.getResponseBodyAsStream();
+        if (in == null) {
+            return null;
+        }
+        try {
+            if (RESPONSE_TYPE_FILE.equalsIgnoreCase(responseType)) {
+                File f;
+                if (StringUtils.isBlank(file)) {
+                    final File temp = File.createTempFile("paxml-http-", ".tmp");
+                    // not with deleteOnExit(), whose list only grows in a
+                    // long running jvm
+                    context.registerCloseable(new Closeable() {
+                        @Override
+                        public void close() {
+                            FileUtils.deleteQuietly(temp);
+                        }
+                    });
+                    f = temp;
+                } else {
+                    f = new File(file);
+                }
+                OutputStream out = new FileOutputStream(f);
+                try {
+                    IOUtils.copy(in, out);
+                } finally {
+                    IOUtils.closeQuietly(out);
+                }
+                return f;
+            } else if (RESPONSE_TYPE_JSON.equalsIgnoreCase(responseType)) {
+                return XmlUtils.fromJson(in);
+            } else if (RESPONSE_TYPE_XML.equalsIgnoreCase(responseType)) {
+                // fully build the tree before the connection is released
+                OMElement root = AxiomUtils.getRootElement(in);
+                root.build();
+                return root;
+            } else {
+                throw new PaxmlRuntimeException("Unknown response type: " + responseType);
+            }
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
     protected void onBeforeSend(HttpMethodBase m) {
         // do nothing here, let subclasses do stuff
     }
@@ -260,6 +332,22 @@ public class HttpTag extends BeanTag {
         this.failOnError = failOnError;
     }
 
+    public String getResponseType() {
+        return responseType;
+    }
+
+    public void setResponseType(String responseType) {
+        this.responseType = responseType;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
     public int getMaxRetry() {
         return maxRetry;
     }
@@ -19,6 +19,8 @@ package org.paxml.bean;
 import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 import org.apache.commons.lang3.StringUtils;
@@ -27,6 +29,8 @@ import org.apache.commons.logging.LogFactory;
 import org.paxml.annotation.Tag;
 import org.paxml.core.Context;
 import org.paxml.core.PaxmlRuntimeException;
+import org.paxml.util.HttpClientPool;
+import org.paxml.util.HttpClientRequestFactory;
 import org.paxml.util.PaxmlUtils;
 import org.paxml.util.XmlUtils;
 import org.springframework.http.HttpEntity;
@@ -46,6 +50,41 @@ import org.springframework.web.client.RestTemplate;
 @Tag(name = RestTag.TAG_NAME)
 public class RestTag extends BeanTag {
 	private static final Log log = LogFactory.getLog(RestTag.class);
+	/**
+	 * Rest templates are thread safe, so there is a simple one and one without
+	 * error handling per http pool, sending over the pooled connections.
+	 */
+	private static final ConcurrentMap<HttpClientPool, RestTemplate[]> TEMPLATES = new ConcurrentHashMap<HttpClientPool, RestTemplate[]>();
+
+	private static RestTemplate getTemplate(Context context, boolean simple) {
+		final HttpClientPool pool = HttpClientPool.getPool(context);
+		RestTemplate[] templates = TEMPLATES.get(pool);
+		if (templates == null) {
+			HttpClientRequestFactory factory = new HttpClientRequestFactory(pool.getHttpClient());
+			templates = new RestTemplate[] { new RestTemplate(factory), new RestTemplate(factory) };
+			// cancel default error handling
+			templates[1].setErrorHandler(new ResponseErrorHandler() {
+
+				@Override
+				public boolean hasError(ClientHttpResponse response) throws IOException {
+					// always say no error
+					return false;
+				}
+
+				@Override
+				public void handleError(ClientHttpResponse response) throws IOException {
+					// do nothing
+				}
+
+			});
+			RestTemplate[] existing = TEMPLATES.putIfAbsent(pool, templates);
+			if (existing != null) {
+				templates = existing;
+			}
+		}
+		return simple ? templates[0] : templates[1];
+	}
+
 	public static class RestResult {
 		private Object body;
 		private Map headers;
@@ -109,24 +148,7 @@ public class RestTag extends BeanTag {
 	@Override
 	protected Object doInvoke(Context context) throws Exception {
 
-		RestTemplate t = new RestTemplate();
-		if (!simple) {
-			// cancel default error handling
-			t.setErrorHandler(new ResponseErrorHandler() {
-
-				@Override
-				public boolean hasError(ClientHttpResponse response) throws IOException {
-					// always say no error
-					return false;
-				}
-
-				@Override
-				public void handleError(ClientHttpResponse response) throws IOException {
-					// do nothing
-				}
-
-			});
-		}
+		RestTemplate t = getTemplate(context, simple);
 		Object value = getValue();
 		HttpHeaders hds = new HttpHeaders();
 		if (username != null) {
@@ -16,7 +16,6 @@
  */
 package org.paxml.bean;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -34,6 +33,7 @@ import org.apache.axiom.om.OMFactory;
 import org.apache.axiom.om.OMNamespace;
 import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
 import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpState;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.params.HttpMethodParams;
@@ -45,6 +45,7 @@ import org.paxml.core.ObjectTree;
 import org.paxml.core.PaxmlRuntimeException;
 import org.paxml.util.AxiomUtils;
 import org.paxml.util.Elements;
+import org.paxml.util.HttpClientPool;
 
 
 /**
@@ -69,6 +70,7 @@ public class SoapTag extends BeanTag {
     private Map headers;
     private Object body;
     private String targetNamespace;
+    private boolean raw;
 
     /**
      * {@inheritDoc}
@@ -76,7 +78,7 @@ public class SoapTag extends BeanTag {
     @Override
     protected Object doInvoke(Context context) throws Exception {
 
-        HttpClient client = new HttpClient();
+        HttpClient client = HttpClientPool.getHttpClient(context);
         PostMethod method = new PostMethod(url);
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         write(out);
@@ -101,19 +103,21 @@ public class SoapTag extends BeanTag {
         // method.setr
         try {
             // Execute the method.
-            int statusCode = client.executeMethod(method);
+            // a fresh state for each request, so that cookies never leak
+            // between unrelated requests sharing the pooled client
+            int statusCode = client.executeMethod(null, method, new HttpState());
 
             if (statusCode != HttpStatus.SC_OK) {
                 throw new PaxmlRuntimeException("Http post failed: " + method.getStatusLine());
             }
 
-            // Read the response body.
-            byte[] responseBody = method.getResponseBody();
-
-            // Deal with the response.
-            // Use caution: ensure correct character encoding and is not binary
-            // data
-            return read(new ByteArrayInputStream(responseBody));
+            // parse straight from the response stream
+            InputStream in = method.getResponseBodyAsStream();
+            try {
+                return read(in);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
         } finally {
             // Release the connection.
             method.releaseConnection();
@@ -155,6 +159,14 @@ public class SoapTag extends BeanTag {
             throw new PaxmlRuntimeException("Soap fault code (" + code == null ? " "
                     : code.getText() + "): " + string == null ? "" : string.getText());
         }
+        if (raw) {
+            // fully build the payload before the connection is released
+            OMElement payload = ele.getFirstElement();
+            if (payload != null) {
+                payload.build();
+            }
+            return payload;
+        }
         return fromXml(ele.getFirstElement());
 
     }
@@ -279,6 +291,21 @@ public class SoapTag extends BeanTag {
         this.responseless = responseless;
     }
 
+    public boolean isRaw() {
+        return raw;
+    }
+
+    /**
+     * Set whether to return the response payload as the axiom element instead
+     * of converting it into an object tree.
+     * 
+     * @param raw
+     *            true to return the axiom element
+     */
+    public void setRaw(boolean raw) {
+        this.raw = raw;
+    }
+
     public String getTargetNamespace() {
         return targetNamespace;
     }
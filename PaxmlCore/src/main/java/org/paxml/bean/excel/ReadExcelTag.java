@@ -18,7 +18,6 @@ package org.paxml.bean.excel;
 
 import java.io.File;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -43,6 +42,9 @@ import org.paxml.bean.AbstractLazyTag;
 import org.paxml.core.Context;
 import org.paxml.core.PaxmlRuntimeException;
 import org.paxml.table.excel.ExcelFile;
+import org.paxml.table.excel.XlsxSheetReader;
+import org.paxml.util.DataSourceRegistry;
+import org.paxml.util.DataSourceRegistry.PoolSettings;
 import org.paxml.util.ReflectUtils;
 
 /**
@@ -66,6 +68,7 @@ public class ReadExcelTag extends AbstractLazyTag {
 	private int lastRow = Integer.MAX_VALUE;
 	private String lastColumn;
 	private String range;
+	private boolean evaluate;
 
 	protected int _firstColumn;
 	protected int _lastColumn = Integer.MAX_VALUE;
@@ -136,7 +139,8 @@ public class ReadExcelTag extends AbstractLazyTag {
 	private Iterator doBasic(Context context) throws Exception {
 
 		return new Iterator() {
-			private Iterator<Row> it;
+			private Iterator it;
+			private XlsxSheetReader reader;
 			private int index;
 			private Map<Integer, String> headers = new LinkedHashMap<Integer, String>();
 
@@ -144,13 +148,24 @@ public class ReadExcelTag extends AbstractLazyTag {
 
 				boolean ok = false;
 				try {
+					// stream xlsx files if iterated lazily without evaluating
+					// formulas, so that the workbook is never loaded
+					if (isLazy() && !evaluate) {
+						reader = file.openSheetReader(sheet);
+					}
+					if (reader != null) {
+						it = reader;
+						if (log.isDebugEnabled()) {
+							log.debug("Start streaming from row " + Math.max(1, firstRow) + " of sheet: " + StringUtils.defaultIfBlank(sheet, "1"));
+						}
+					} else {
+						Sheet s = getExcelSheet(false);
 
-					Sheet s = getExcelSheet(false);
-
-					it = s.iterator();
-					// find the start row
-					if (log.isDebugEnabled()) {
-						log.debug("Start reading from row " + Math.max(1, firstRow) + " of sheet: " + s.getSheetName());
+						it = s.iterator();
+						// find the start row
+						if (log.isDebugEnabled()) {
+							log.debug("Start reading from row " + Math.max(1, firstRow) + " of sheet: " + s.getSheetName());
+						}
 					}
 
 					for (int i = 1; i < firstRow && it.hasNext(); i++) {
@@ -168,6 +183,9 @@ public class ReadExcelTag extends AbstractLazyTag {
 
 			private void end() {
 				it = null;
+				if (reader != null) {
+					reader.close();
+				}
 				file.close();
 			}
 
@@ -195,8 +213,8 @@ public class ReadExcelTag extends AbstractLazyTag {
 			@Override
 			public Object next() {
 				try {
-					Row row = it.next();
-					Object r = readRow(row);
+					Object row = it.next();
+					Object r = row instanceof Row ? readRow((Row) row) : readRow((Map<Integer, Object>) row);
 					index++;
 					return r;
 				} catch (Exception e) {
@@ -223,20 +241,34 @@ public class ReadExcelTag extends AbstractLazyTag {
 				for (int i = firstCell; i <= lastCell; i++) {
 					Cell cell = row.getCell(i);
 					if (cell != null) {
-						Object value = file.getCellValue(cell);
-						// dual keys for the same value
-						result.put(i, value);
-						String key = headers.get(i);
-						if (key == null) {
-							key = new CellReference(-1, i).formatAsString();
-							headers.put(i, key);
-						}
-						result.put(key, value);
+						putCell(result, i, file.getCellValue(cell));
+					}
+				}
+				return result;
+			}
+
+			private Map<Object, Object> readRow(Map<Integer, Object> row) {
+				Map<Object, Object> result = new LinkedHashMap<Object, Object>();
+				for (Map.Entry<Integer, Object> cell : row.entrySet()) {
+					final int i = cell.getKey();
+					if (i >= _firstColumn && i <= _lastColumn) {
+						putCell(result, i, cell.getValue());
 					}
 				}
 				return result;
 			}
 
+			private void putCell(Map<Object, Object> result, int i, Object value) {
+				// dual keys for the same value
+				result.put(i, value);
+				String key = headers.get(i);
+				if (key == null) {
+					key = new CellReference(-1, i).formatAsString();
+					headers.put(i, key);
+				}
+				result.put(key, value);
+			}
+
 		};
 
 	}
@@ -379,14 +411,14 @@ public class ReadExcelTag extends AbstractLazyTag {
 	}
 
 	protected Connection getConnection(File f) {
+		final String url = "jdbc:odbc:Driver={Microsoft Excel Driver (*.xls, *.xlsx, *.xlsm, *.xlsb)};" + "Dbq="
+				+ f.getAbsolutePath().replace("/", "" + File.pathSeparatorChar) + ";";
+		// keep no idle connection, which would hold the workbook open and
+		// could serve stale data after the file changes
+		PoolSettings settings = new PoolSettings();
+		settings.setMaxIdle(0);
 		try {
-			Class.forName(ODBC_DRIVER);
-		} catch (Exception e) {
-			throw new PaxmlRuntimeException(e);
-		}
-		try {
-			return DriverManager.getConnection("jdbc:odbc:Driver={Microsoft Excel Driver (*.xls, *.xlsx, *.xlsm, *.xlsb)};" + "Dbq="
-					+ f.getAbsolutePath().replace("/", "" + File.pathSeparatorChar) + ";");
+			return DataSourceRegistry.getDefault().getDataSource(ODBC_DRIVER, url, null, null, settings).getConnection();
 		} catch (SQLException e) {
 			throw new PaxmlRuntimeException("Cannot open excel file via odbc: " + f.getAbsolutePath(), e);
 		}
@@ -448,6 +480,22 @@ public class ReadExcelTag extends AbstractLazyTag {
 		this.range = range;
 	}
 
+	public boolean isEvaluate() {
+		return evaluate;
+	}
+
+	/**
+	 * Set whether to evaluate the formulas. Lazily read xlsx files are streamed
+	 * with the formula results cached in the file unless this is set.
+	 * 
+	 * @param evaluate
+	 *            true to load the workbook and evaluate the formulas, false to
+	 *            allow streaming.
+	 */
+	public void setEvaluate(boolean evaluate) {
+		this.evaluate = evaluate;
+	}
+
 	public Object getQueryParameter() {
 		return queryParameter;
 	}
@@ -20,7 +20,11 @@ import java.io.File;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
@@ -31,10 +35,14 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.paxml.annotation.Tag;
 import org.paxml.core.Context;
 import org.paxml.core.PaxmlRuntimeException;
+import org.paxml.table.IRow;
 import org.paxml.table.excel.ExcelFile;
+import org.paxml.table.excel.ExcelTable;
+import org.paxml.util.ReflectUtils;
 
 /**
  * WriteExcel tag impl.
@@ -54,6 +62,9 @@ public class WriteExcelTag extends ReadExcelTag {
 	private String cell;
 	private int _column = -1;
 
+	private boolean stream;
+	private int window = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+
 	public static void main(String[] args) throws Exception {
 		File file = new File("C:\\Users\\niuxuetao\\Downloads\\Untitled spreadsheet.xls");
 		Workbook wb1 = WorkbookFactory.create(file);
@@ -71,7 +82,9 @@ public class WriteExcelTag extends ReadExcelTag {
 	@Override
 	protected Object doInvoke(Context context) throws Exception {
 		String query = getQuery();
-		if (query == null || query.isEmpty()) {
+		if (stream) {
+			doStream(context);
+		} else if (query == null || query.isEmpty()) {
 			doBasic(context);
 		} else {
 			doQuery(context);
@@ -131,6 +144,50 @@ public class WriteExcelTag extends ReadExcelTag {
 		}
 	}
 
+	/**
+	 * Append the data rows to a xlsx file, keeping only the last rows within
+	 * the window in memory, and save the file.
+	 * 
+	 * @param context
+	 */
+	private void doStream(Context context) {
+		Object target = getFile() == null ? getValue() : getFile().getFile();
+		if (target == null) {
+			throw new PaxmlRuntimeException("Please specify the excel file to write!");
+		}
+		ExcelTable table = ExcelTable.forStreamingWrite(target, getSheet(), window);
+		try {
+			Iterator it;
+			if (data == null) {
+				it = Collections.emptyList().iterator();
+			} else if (data instanceof Iterator) {
+				it = (Iterator) data;
+			} else if (data instanceof Iterable) {
+				it = ((Iterable) data).iterator();
+			} else if (data instanceof Map) {
+				it = Collections.singletonList(data).iterator();
+			} else {
+				List list = new ArrayList();
+				ReflectUtils.collect(data, list, true);
+				it = list.iterator();
+			}
+			while (it.hasNext()) {
+				Object obj = it.next();
+				IRow row = table.createNextRow();
+				if (obj instanceof Map) {
+					row.setCellValues((Map) obj);
+				} else {
+					List cells = new ArrayList();
+					ReflectUtils.collect(obj, cells, true);
+					row.setCellValues(0, -1, cells.iterator());
+				}
+			}
+			table.flush();
+		} finally {
+			table.close();
+		}
+	}
+
 	private int getCellIndex(Object key) {
 		key = columnMapper == null ? key : columnMapper.get(key);
 		if (key == null) {
@@ -199,6 +256,22 @@ public class WriteExcelTag extends ReadExcelTag {
 		this.cell = cell;
 	}
 
+	public boolean isStream() {
+		return stream;
+	}
+
+	public void setStream(boolean stream) {
+		this.stream = stream;
+	}
+
+	public int getWindow() {
+		return window;
+	}
+
+	public void setWindow(int window) {
+		this.window = window;
+	}
+
 	public Map getColumnMapper() {
 		return columnMapper;
 	}
@@ -21,14 +21,25 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.jxpath.Pointer;
 import org.paxml.annotation.Tag;
 import org.paxml.core.Context;
 import org.paxml.core.PaxmlRuntimeException;
+import org.paxml.el.ExpressionFactory;
 import org.paxml.el.IExpression;
 import org.paxml.file.FileHelper;
 import org.paxml.tag.AbstractTag.ChildrenResultList;
@@ -59,6 +70,400 @@ public class IterateTag extends AbstractControlTag implements IPropertyVisitor<C
 	 */
 	public static final String DEFAULT_INDEX = "index";
 
+	/**
+	 * The default const name of the reduction result.
+	 */
+	public static final String DEFAULT_ACC = "acc";
+
+	/**
+	 * The system property of the max number of worker threads shared by all
+	 * parallel iterations in the JVM.
+	 */
+	public static final String MAX_THREADS_PROPERTY = "paxml.iterate.maxThreads";
+
+	/**
+	 * The worker threads shared by all parallel iterations. Work is handed
+	 * over directly to an idle thread, and runs on the submitting thread when
+	 * all threads are busy, so nested parallel loops never wait for each
+	 * other and never add threads beyond the limit.
+	 */
+	private static final ThreadPoolExecutor WORKERS = createWorkers();
+
+	private static ThreadPoolExecutor createWorkers() {
+		final int max = Integer.getInteger(MAX_THREADS_PROPERTY, Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadPoolExecutor(0, max, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "paxml-iterate-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * What the iterate tag results in.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	public static enum ResultMode {
+		/**
+		 * Discard the children results, resulting in null.
+		 */
+		NONE,
+		/**
+		 * Only keep the children results of the last iteration.
+		 */
+		LAST,
+		/**
+		 * Collect the children results of all iterations.
+		 */
+		COLLECT,
+		/**
+		 * Evaluate the reduce expression after each iteration, resulting in the
+		 * value of the last evaluation.
+		 */
+		REDUCE
+	}
+
+	/**
+	 * Holds the values of consts that are shadowed by the loop vars, so that
+	 * they can be restored after the loop.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private static class ShadowedConsts {
+		private final String[] ids;
+		private final boolean[] existing;
+		private final Object[] values;
+
+		private ShadowedConsts(Context context, String... ids) {
+			this.ids = ids;
+			this.existing = new boolean[ids.length];
+			this.values = new Object[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] != null && context.hasConstId(ids[i], false)) {
+					existing[i] = true;
+					values[i] = context.getConst(ids[i], false);
+				}
+			}
+		}
+
+		private void restore(Context context) {
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] == null) {
+					continue;
+				}
+				if (existing[i]) {
+					context.setConst(ids[i], ids[i], values[i], false);
+				} else {
+					context.removeConst(ids[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the iterations and receives their children results according to
+	 * the result mode, so that only what is needed is held during the loop.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private abstract class Loop {
+		protected final Context context;
+		private ChildrenResultList list;
+		private Object acc;
+
+		private Loop(Context context) {
+			this.context = context;
+		}
+
+		/**
+		 * Run one iteration.
+		 * 
+		 * @return true to continue with the next iteration, false to stop
+		 *         the loop.
+		 */
+		abstract boolean next(Object obj, Object propertyName, int index, Object propertyValue);
+
+		/**
+		 * Wait for all iterations to complete.
+		 */
+		void end() {
+			// nothing by default
+		}
+
+		/**
+		 * Release the resources, called after end() or when the loop fails.
+		 */
+		abstract void close();
+
+		/**
+		 * Take the children results of an iteration.
+		 * 
+		 * @param varContext
+		 *            the context with the loop vars of the iteration
+		 * @param iterationResult
+		 *            the children results of the iteration
+		 */
+		protected void addResult(Context varContext, ChildrenResultList iterationResult) {
+			switch (resultMode) {
+			case NONE:
+				break;
+			case LAST:
+				list = iterationResult;
+				break;
+			case COLLECT:
+				list = addAll(list, iterationResult);
+				break;
+			case REDUCE:
+				acc = reduce.evaluate(varContext);
+				varContext.setConst(accName, accName, acc, false);
+				break;
+			default:
+				throw new PaxmlRuntimeException("Unknown result mode: " + resultMode);
+			}
+		}
+
+		Object getResult() {
+			return resultMode == ResultMode.REDUCE ? acc : list;
+		}
+	}
+
+	/**
+	 * Runs the iterations one by one on the caller thread with the caller's
+	 * context.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private class SequentialLoop extends Loop {
+		private final ShadowedConsts shadowed;
+
+		private SequentialLoop(Context context) {
+			super(context);
+			// remember the consts shadowed by the loop vars once for the whole
+			// loop, instead of for every iteration
+			shadowed = new ShadowedConsts(context, varName, indexVarName, varNameText, resultMode == ResultMode.REDUCE ? accName : null);
+			if (resultMode == ResultMode.REDUCE) {
+				context.setConst(accName, accName, null, false);
+			}
+		}
+
+		@Override
+		boolean next(Object obj, Object propertyName, int index, Object propertyValue) {
+			// the loop vars of the current iteration are still there for the
+			// reduce expression
+			addResult(context, visit(context, obj, propertyName, index, propertyValue));
+			return !context.getStack().isExiting() && !context.getCurrentEntityContext().isReturning();
+		}
+
+		@Override
+		void close() {
+			shadowed.restore(context);
+		}
+	}
+
+	/**
+	 * One iteration executed by a worker thread.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private class Iteration implements Callable<Iteration> {
+		private final int seq;
+		private final Object obj;
+		private final Object propertyName;
+		private final int index;
+		private final Object propertyValue;
+		private final Context worker;
+		private final ParallelLoop loop;
+		private ChildrenResultList result;
+		private Throwable error;
+
+		private Iteration(ParallelLoop loop, int seq, Object obj, Object propertyName, int index, Object propertyValue, Context worker) {
+			this.loop = loop;
+			this.seq = seq;
+			this.obj = obj;
+			this.propertyName = propertyName;
+			this.index = index;
+			this.propertyValue = propertyValue;
+			this.worker = worker;
+		}
+
+		public Iteration call() {
+			if (loop.cancelled) {
+				return this;
+			}
+			// the submitting thread runs the iteration itself when all
+			// workers are busy, so its context has to be put back afterwards
+			final Context previous = Context.getCurrentContext();
+			worker.setAsCurrentThreadContext();
+			try {
+				result = visit(worker, obj, propertyName, index, propertyValue);
+				worker.flushCloseables();
+			} catch (Throwable t) {
+				error = t;
+			} finally {
+				worker.closeAllCloseables();
+				if (previous == null) {
+					Context.cleanCurrentThreadContext();
+				} else {
+					previous.setAsCurrentThreadContext();
+				}
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Runs the iterations on the shared worker threads, at most the given
+	 * number at a time, each iteration with a context forked from the
+	 * caller's context. The children results
+	 * are merged on the caller thread, either in the iteration order or in the
+	 * completion order. The number of iterations that are submitted but not
+	 * merged yet is limited, so that big loops do not pile up in memory.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private class ParallelLoop extends Loop {
+		private final CompletionService<Iteration> completion;
+		private final int threads;
+		private final int maxPending;
+		/**
+		 * Holds the loop vars and the reduction result, so that the caller's
+		 * context is not changed while the workers are reading it.
+		 */
+		private final Context mergeContext;
+		private final Map<Integer, Iteration> outOfOrder = new HashMap<Integer, Iteration>();
+		private int submitted;
+		private int running;
+		private int nextToMerge;
+		private boolean stopped;
+		private volatile boolean cancelled;
+		private Throwable error;
+		private Context exceptionContext;
+
+		private ParallelLoop(Context context, int threads) {
+			super(context);
+			completion = new ExecutorCompletionService<Iteration>(WORKERS);
+			this.threads = threads;
+			maxPending = threads * 2;
+			mergeContext = new Context(context);
+			if (resultMode == ResultMode.REDUCE) {
+				mergeContext.setConst(accName, accName, null, false);
+			}
+		}
+
+		@Override
+		boolean next(Object obj, Object propertyName, int index, Object propertyValue) {
+			while (!stopped && (running >= threads || running + outOfOrder.size() >= maxPending)) {
+				take();
+			}
+			if (stopped) {
+				return false;
+			}
+			completion.submit(new Iteration(this, submitted++, obj, propertyName, index, propertyValue, context.fork()));
+			running++;
+			return true;
+		}
+
+		private void take() {
+			Iteration it;
+			try {
+				it = completion.take().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new PaxmlRuntimeException("Interrupted while waiting for parallel iterations", e);
+			} catch (ExecutionException e) {
+				// not expected because the iterations catch their own errors
+				throw new PaxmlRuntimeException(e.getCause());
+			}
+			running--;
+			if (!ordered) {
+				merge(it);
+				return;
+			}
+			outOfOrder.put(it.seq, it);
+			for (Iteration next = outOfOrder.remove(nextToMerge); next != null; next = outOfOrder.remove(nextToMerge)) {
+				nextToMerge++;
+				merge(next);
+			}
+		}
+
+		private void merge(Iteration it) {
+			if (it.error != null) {
+				if (error == null) {
+					error = it.error;
+					exceptionContext = it.worker.getExceptionContext();
+				}
+				stopped = true;
+			}
+			if (stopped) {
+				return;
+			}
+			if (resultMode == ResultMode.REDUCE) {
+				mergeContext.setConst(varName, varName, it.propertyValue, false);
+				mergeContext.setConst(indexVarName, indexVarName, it.index, false);
+				mergeContext.setConst(varNameText, varNameText, it.propertyName, false);
+			}
+			addResult(mergeContext, it.result);
+
+			if (it.worker.isReturning()) {
+				context.setInvocationResult(it.worker.getInvocationResult());
+				context.getCurrentEntityContext().setReturning(true);
+				stopped = true;
+			}
+			if (it.worker.getStack().isExiting()) {
+				context.getStack().exit();
+				stopped = true;
+			}
+		}
+
+		@Override
+		void end() {
+			while (running > 0) {
+				take();
+			}
+			if (error != null) {
+				if (context.getExceptionContext() == null && exceptionContext != null) {
+					context.setExceptionContext(exceptionContext);
+				}
+				if (error instanceof RuntimeException) {
+					throw (RuntimeException) error;
+				} else if (error instanceof Error) {
+					throw (Error) error;
+				}
+				throw new PaxmlRuntimeException(error);
+			}
+		}
+
+		/**
+		 * Skip the iterations not started yet and wait for the running ones,
+		 * so that no worker reads the caller's context after the loop.
+		 */
+		@Override
+		void close() {
+			cancelled = true;
+			boolean interrupted = false;
+			while (running > 0) {
+				try {
+					completion.take();
+					running--;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
 	private IExpression list;
 	private IExpression map;
 	private IExpression xpath;
@@ -66,15 +471,20 @@ public class IterateTag extends AbstractControlTag implements IPropertyVisitor<C
 	private IExpression bean;
 	private IExpression values;
 	private IExpression file;
+	private IExpression reduce;
+	private IExpression parallel;
+	private IExpression threads;
+	private boolean ordered = true;
 	private String varName = DEFAULT_VAR;
 	private String indexVarName = DEFAULT_INDEX;
 	private String varNameText = DEFAULT_VAR_NAME;
+	private String accName = DEFAULT_ACC;
+	private ResultMode resultMode = ResultMode.COLLECT;
 
-	private ChildrenResultList visitIterator(Context context, Iterator<?> it) {
+	private void visitIterator(Iterator<?> it, Loop loop) {
 		if (it == null) {
-			return null;
+			return;
 		}
-		ChildrenResultList list = null;
 		int i = 0;
 		while (it.hasNext()) {
 			Object value = it.next();
@@ -82,35 +492,35 @@ public class IterateTag extends AbstractControlTag implements IPropertyVisitor<C
 				value = ((Pointer) value).getValue();
 			}
 			if (value != null) {
-				list = addAll(list, visit(context, it, i + "", i, value));
+				if (!loop.next(it, i + "", i, value)) {
+					return;
+				}
 				i++;
 			}
 		}
-		return list;
 	}
 
-	private ChildrenResultList visitIterable(Context context, Iterable<?> it) {
-		return visitIterator(context, it.iterator());
+	private void visitIterable(Iterable<?> it, Loop loop) {
+		visitIterator(it.iterator(), loop);
 	}
 
-	private ChildrenResultList visitEnumeration(Context context, Enumeration<?> e) {
+	private void visitEnumeration(Enumeration<?> e, Loop loop) {
 		if (e == null) {
-			return null;
+			return;
 		}
-		ChildrenResultList list = null;
 		int i = 0;
 		while (e.hasMoreElements()) {
-			list = addAll(list, visit(context, e, i + "", i, e.nextElement()));
+			if (!loop.next(e, i + "", i, e.nextElement())) {
+				return;
+			}
 			i++;
 		}
-		return list;
 	}
 
-	private ChildrenResultList visitBean(Context context, Object bean, boolean readValue) {
+	private void visitBean(Object bean, boolean readValue, Loop loop) {
 		if (bean == null) {
-			return null;
+			return;
 		}
-		ChildrenResultList list = null;
 		int i = 0;
 		for (PropertyDescriptor d : ReflectUtils.getPropertyDescriptors(bean.getClass(), PropertyDescriptorType.GETTER)) {
 			Method method = d.getReadMethod();
@@ -123,35 +533,36 @@ public class IterateTag extends AbstractControlTag implements IPropertyVisitor<C
 				}
 			}
 
-			list = addAll(list, visit(context, bean, d.getName(), i++, value));
+			if (!loop.next(bean, d.getName(), i++, value)) {
+				return;
+			}
 		}
-		return list;
 	}
 
-	private ChildrenResultList visitMap(Context context, Map<?, ?> map) {
+	private void visitMap(Map<?, ?> map, Loop loop) {
 		if (map == null) {
-			return null;
+			return;
 		}
-		ChildrenResultList list = null;
 		int i = 0;
 		for (Map.Entry<?, ?> entry : map.entrySet()) {
-			list = addAll(list, visit(context, map, entry.getKey(), i++, entry.getValue()));
+			if (!loop.next(map, entry.getKey(), i++, entry.getValue())) {
+				return;
+			}
 		}
-		return list;
 	}
 
-	private ChildrenResultList visitArray(Context context, Object array) {
+	private void visitArray(Object array, Loop loop) {
 		if (array == null) {
-			return null;
+			return;
 		}
-		ChildrenResultList list = null;
 		final int len = Array.getLength(array);
 		for (int i = 0; i < len; i++) {
 			Object value = Array.get(array, i);
-			list = addAll(list, visit(context, array, i + "", i, value));
+			if (!loop.next(array, i + "", i, value)) {
+				return;
+			}
 
 		}
-		return list;
 	}
 
 	/**
@@ -159,24 +570,25 @@ public class IterateTag extends AbstractControlTag implements IPropertyVisitor<C
 	 */
 	@Override
 	protected Object doExecute(Context context) {
+		final int threadCount = getThreadCount(context);
+		final Loop loop = threadCount > 0 ? new ParallelLoop(context, threadCount) : new SequentialLoop(context);
 		try {
-
 			if (list != null) {
-				return iterateList(context, list.evaluate(context));
+				iterateList(list.evaluate(context), loop);
 			} else if (map != null) {
 				Object value = map.evaluate(context);
 				if (value instanceof Map) {
-					return visitMap(context, (Map) value);
+					visitMap((Map) value, loop);
 				} else if (value != null) {
-					return visit(context, value, null, 0, value);
+					loop.next(value, null, 0, value);
 				}
 			} else if (bean != null) {
 				Object overValue = bean.evaluate(context);
-				return visitBean(context, overValue, true);
+				visitBean(overValue, true, loop);
 			} else if (xpath != null) {
 				String exp = xpath.evaluateString(context);
 				List<?> list = (List<?>) context.xpathSelect(exp, true);
-				return iterateList(context, list);
+				iterateList(list, loop);
 			} else if (times != null) {
 				String num = times.evaluateString(context);
 				final long rounds;
@@ -185,101 +597,105 @@ public class IterateTag extends AbstractControlTag implements IPropertyVisitor<C
 				} catch (Exception e) {
 					throw new PaxmlRuntimeException("The @" + IterateTagFactory.ATTR_TIMES + " attribute of tag <" + getTagName() + "> is not a number: " + num);
 				}
-				ChildrenResultList list = null;
 				for (int i = 0; i < rounds; i++) {
-					list = addAll(list, visit(context, rounds, null, i, i));
+					if (!loop.next(rounds, null, i, i)) {
+						break;
+					}
 				}
-				return list;
 			} else if (values != null) {
-				return iterateValues(context, values.evaluate(context));
+				iterateValues(values.evaluate(context), loop);
 			} else if (file != null) {
 				Resource res = PaxmlUtils.getResource(file.evaluateString(context), getEntity().getResource().getSpringResource());
-				return iterateValues(context, FileHelper.load(res));
+				iterateValues(FileHelper.load(res), loop);
 			} else {
 				throw new PaxmlRuntimeException("Nothing to iterate on!!!");
 			}
+			loop.end();
 		} finally {
+			loop.close();
 			context.setConstOverwritable(false);
 		}
-		return null;
+		return loop.getResult();
 	}
 
-	private Object iterateValues(Context context, Object overValue) {
+	/**
+	 * Get the number of worker threads.
+	 * 
+	 * @param context
+	 *            the context
+	 * @return 0 to iterate sequentially on the caller thread, otherwise the
+	 *         number of threads to iterate in parallel.
+	 */
+	private int getThreadCount(Context context) {
+		final boolean yes = parallel == null ? threads != null : ExpressionFactory.isTrue(parallel.evaluate(context));
+		if (!yes) {
+			return 0;
+		}
+		if (threads == null) {
+			return Runtime.getRuntime().availableProcessors();
+		}
+		String num = threads.evaluateString(context);
+		final int count;
+		try {
+			count = (int) Double.parseDouble(num);
+		} catch (Exception e) {
+			throw new PaxmlRuntimeException("The @" + IterateTagFactory.ATTR_THREADS + " attribute of tag <" + getTagName() + "> is not a number: " + num);
+		}
+		if (count < 1) {
+			throw new PaxmlRuntimeException("The @" + IterateTagFactory.ATTR_THREADS + " attribute of tag <" + getTagName() + "> should be at least 1, but got: " + num);
+		}
+		return count;
+	}
+
+	private void iterateValues(Object overValue, Loop loop) {
 
 		if (overValue == null) {
 			// do nothing
-			return null;
 		} else if (overValue instanceof Iterable) {
-			return visitIterable(context, (Iterable<?>) overValue);
+			visitIterable((Iterable<?>) overValue, loop);
 		} else if (overValue instanceof Iterator) {
-			return visitIterator(context, (Iterator<?>) overValue);
+			visitIterator((Iterator<?>) overValue, loop);
 		} else if (overValue instanceof Enumeration) {
-			return visitEnumeration(context, (Enumeration<?>) overValue);
+			visitEnumeration((Enumeration<?>) overValue, loop);
 		} else if (overValue instanceof Map) {
 			// iterate over the values of the map
-			return visitMap(context, (Map<?, ?>) overValue);
+			visitMap((Map<?, ?>) overValue, loop);
 		} else if (overValue.getClass().isArray()) {
 			// iterate over the items of the array
-			return visitArray(context, overValue);
+			visitArray(overValue, loop);
 		} else {
-			return visit(context, overValue, null, 0, overValue);
+			loop.next(overValue, null, 0, overValue);
 		}
 	}
 
-	private Object iterateList(Context context, Object overValue) {
+	private void iterateList(Object overValue, Loop loop) {
 
 		if (overValue == null) {
 			// do nothing
-			return null;
 		} else if (overValue instanceof Iterable) {
-			return visitIterable(context, (Iterable<?>) overValue);
+			visitIterable((Iterable<?>) overValue, loop);
 		} else if (overValue instanceof Iterator) {
-			return visitIterator(context, (Iterator<?>) overValue);
+			visitIterator((Iterator<?>) overValue, loop);
 		} else if (overValue instanceof Enumeration) {
-			return visitEnumeration(context, (Enumeration<?>) overValue);
+			visitEnumeration((Enumeration<?>) overValue, loop);
 		} else if (overValue.getClass().isArray()) {
 			// iterate over the items of the array
-			return visitArray(context, overValue);
+			visitArray(overValue, loop);
 		} else {
-			return visit(context, overValue, null, 0, overValue);
+			loop.next(overValue, null, 0, overValue);
 		}
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * {@inheritDoc} The loop vars are overwritten but not restored here, the
+	 * consts they shadow are restored when the whole loop ends.
 	 */
 	public ChildrenResultList visit(Context context, Object obj, Object propertyName, int index, Object propertyValue) {
-		// set the loop vars and remember the previous status
-		final boolean varExists = context.hasConstId(varName, false);
-		final Object oldVar = varExists ? context.removeConst(varName) : null;
-		context.addConst(varName, varName, propertyValue, true);
-
-		final boolean indexExists = context.hasConstId(indexVarName, false);
-		final Object oldIndex = indexExists ? context.removeConst(indexVarName) : null;
-		context.addConst(indexVarName, indexVarName, index, true);
+		context.setConst(varName, varName, propertyValue, false);
+		context.setConst(indexVarName, indexVarName, index, false);
+		context.setConst(varNameText, varNameText, propertyName, false);
 
-		final boolean varNameExists = context.hasConstId(varNameText, false);
-		final Object oldVarName = varNameExists ? context.removeConst(varNameText) : null;
-		context.addConst(varNameText, varNameText, propertyName, true);
-
-		ChildrenResultList list = executeChildren(context);
-
-		// restore the previous status
-		context.removeConst(varName);
-		if (varExists) {
-			context.addConst(varName, varName, oldVar, true);
-		}
-
-		context.removeConst(indexVarName);
-		if (indexExists) {
-			context.addConst(indexVarName, indexVarName, oldIndex, true);
-		}
-
-		context.removeConst(varNameText);
-		if (varNameExists) {
-			context.addConst(varNameText, varNameText, oldVarName, true);
-		}
-		return list;
+		return executeChildren(context);
 	}
 
 	private static ChildrenResultList addAll(ChildrenResultList to, Collection<Object> from) {
@@ -373,4 +789,52 @@ public class IterateTag extends AbstractControlTag implements IPropertyVisitor<C
 		this.file = file;
 	}
 
+	public IExpression getReduce() {
+		return reduce;
+	}
+
+	public void setReduce(IExpression reduce) {
+		this.reduce = reduce;
+	}
+
+	public String getAccName() {
+		return accName;
+	}
+
+	public void setAccName(String accName) {
+		this.accName = accName;
+	}
+
+	public IExpression getParallel() {
+		return parallel;
+	}
+
+	public void setParallel(IExpression parallel) {
+		this.parallel = parallel;
+	}
+
+	public IExpression getThreads() {
+		return threads;
+	}
+
+	public void setThreads(IExpression threads) {
+		this.threads = threads;
+	}
+
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	public ResultMode getResultMode() {
+		return resultMode;
+	}
+
+	public void setResultMode(ResultMode resultMode) {
+		this.resultMode = resultMode;
+	}
+
 }
@@ -21,6 +21,7 @@ import java.util.Arrays;
 import org.apache.axiom.om.OMElement;
 import org.apache.commons.lang3.StringUtils;
 import org.paxml.core.IParserContext;
+import org.paxml.control.IterateTag.ResultMode;
 import org.paxml.core.PaxmlRuntimeException;
 import org.paxml.el.ExpressionFactory;
 import org.paxml.tag.AbstractTagFactory;
@@ -74,6 +75,30 @@ public class IterateTagFactory extends AbstractTagFactory<IterateTag> {
      * The attr name for values.
      */
     public static final String ATTR_FILE = "file";
+    /**
+     * The attr name for result mode.
+     */
+    public static final String ATTR_RESULT = "result";
+    /**
+     * The attr name for reduce expression.
+     */
+    public static final String ATTR_REDUCE = "reduce";
+    /**
+     * The attr name for the reduction result var.
+     */
+    public static final String ATTR_ACC = "acc";
+    /**
+     * The attr name for parallel iteration.
+     */
+    public static final String ATTR_PARALLEL = "parallel";
+    /**
+     * The attr name for the number of worker threads.
+     */
+    public static final String ATTR_THREADS = "threads";
+    /**
+     * The attr name for merging the results in iteration order.
+     */
+    public static final String ATTR_ORDERED = "ordered";
     /**
      * {@inheritDoc}
      */
@@ -85,7 +110,7 @@ public class IterateTagFactory extends AbstractTagFactory<IterateTag> {
         final OMElement ele = context.getElement();
 
         assertNoAttributes(ele, tag.getClass(), ATTR_VALUES, ATTR_VAR, ATTR_BEAN, ATTR_INDEX, ATTR_LIST, ATTR_MAP,
-                ATTR_XPATH, ATTR_TIMES, ATTR_NAME, ATTR_FILE);
+                ATTR_XPATH, ATTR_TIMES, ATTR_NAME, ATTR_FILE, ATTR_RESULT, ATTR_REDUCE, ATTR_ACC, ATTR_PARALLEL, ATTR_THREADS, ATTR_ORDERED);
 
         String varName = AxiomUtils.getAttribute(ele, ATTR_VAR);
         if (StringUtils.isNotBlank(varName)) {
@@ -100,6 +125,25 @@ public class IterateTagFactory extends AbstractTagFactory<IterateTag> {
             tag.setVarNameText(varNameText);
         }
 
+        String accName = AxiomUtils.getAttribute(ele, ATTR_ACC);
+        if (StringUtils.isNotBlank(accName)) {
+            tag.setAccName(accName);
+        }
+        processResultMode(tag, ele);
+
+        String parallel = AxiomUtils.getAttribute(ele, ATTR_PARALLEL);
+        if (StringUtils.isNotBlank(parallel)) {
+            tag.setParallel(ExpressionFactory.create(parallel));
+        }
+        String threads = AxiomUtils.getAttribute(ele, ATTR_THREADS);
+        if (StringUtils.isNotBlank(threads)) {
+            tag.setThreads(ExpressionFactory.create(threads));
+        }
+        String ordered = AxiomUtils.getAttribute(ele, ATTR_ORDERED);
+        if (StringUtils.isNotBlank(ordered)) {
+            tag.setOrdered(Boolean.parseBoolean(ordered.trim()));
+        }
+
         String list = AxiomUtils.getAttribute(ele, ATTR_LIST);
         String map = AxiomUtils.getAttribute(ele, ATTR_MAP);
         String bean = AxiomUtils.getAttribute(ele, ATTR_BEAN);
@@ -147,4 +191,28 @@ public class IterateTagFactory extends AbstractTagFactory<IterateTag> {
         }
         return false;
     }
+
+    private void processResultMode(IterateTag tag, OMElement ele) {
+        String result = AxiomUtils.getAttribute(ele, ATTR_RESULT);
+        String reduce = AxiomUtils.getAttribute(ele, ATTR_REDUCE);
+        ResultMode mode;
+        if (StringUtils.isNotBlank(result)) {
+            try {
+                mode = ResultMode.valueOf(result.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new PaxmlRuntimeException("The @" + ATTR_RESULT + " attribute should be one of "
+                        + Arrays.toString(ResultMode.values()) + ", but got: " + result);
+            }
+        } else {
+            mode = StringUtils.isNotBlank(reduce) ? ResultMode.REDUCE : ResultMode.COLLECT;
+        }
+        if ((mode == ResultMode.REDUCE) != StringUtils.isNotBlank(reduce)) {
+            throw new PaxmlRuntimeException("The @" + ATTR_REDUCE + " attribute should be given if and only if the @"
+                    + ATTR_RESULT + " attribute is " + ResultMode.REDUCE);
+        }
+        if (mode == ResultMode.REDUCE) {
+            tag.setReduce(ExpressionFactory.create(reduce));
+        }
+        tag.setResultMode(mode);
+    }
 }
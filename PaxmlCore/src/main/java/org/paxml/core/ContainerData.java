@@ -0,0 +1,186 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.core;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The content of an ObjectTree or ObjectList. Containers put into a container
+ * are stored as their content, and a content can be referred to by a container,
+ * its copies and the containers it is put into. Once it is shared like that it
+ * is never changed again: the first container changing it copies that one
+ * level, whose nested contents become shared in turn. So copying a container is
+ * O(1), and changing one only copies the levels on the path to the change.
+ *
+ * @author Xuetao Niu
+ *
+ */
+abstract class ContainerData {
+
+	/**
+	 * True once more than one container may refer to this content.
+	 */
+	volatile boolean shared;
+
+	/**
+	 * Marks this content shared.
+	 *
+	 * @return a new content over the same entries, for another container.
+	 */
+	abstract ContainerData share();
+
+	/**
+	 * Copies one level of this content.
+	 *
+	 * @return an unshared content with the same entries, whose nested contents
+	 *         are marked shared.
+	 */
+	abstract ContainerData unshare();
+
+	/**
+	 * Creates the container presenting this content.
+	 *
+	 * @return the container
+	 */
+	abstract IObjectContainer newContainer();
+
+	/**
+	 * Gets the form a value is stored in inside a container.
+	 *
+	 * @param value
+	 *            the value to store
+	 * @return the shared content for ObjectTree and ObjectList, a copy for other
+	 *         containers, otherwise the value itself.
+	 */
+	static Object toStored(Object value) {
+		if (value instanceof ObjectTree) {
+			return ((ObjectTree) value).share();
+		} else if (value instanceof ObjectList) {
+			return ((ObjectList) value).share();
+		} else if (value instanceof IObjectContainer) {
+			return ((IObjectContainer) value).copy();
+		}
+		return value;
+	}
+
+	static void markShared(Object stored) {
+		if (stored instanceof ContainerData) {
+			((ContainerData) stored).shared = true;
+		}
+	}
+
+	/**
+	 * Makes a container and all its parents changeable.
+	 *
+	 * @param container
+	 *            the container
+	 */
+	static void writable(IObjectContainer container) {
+		if (container instanceof ObjectTree) {
+			((ObjectTree) container).writable();
+		} else {
+			((ObjectList) container).writable();
+		}
+	}
+
+	/**
+	 * Tells a parent that a child container has copied its content.
+	 *
+	 * @param parent
+	 *            the parent, already changeable
+	 * @param child
+	 *            the child container
+	 * @param old
+	 *            the content the parent holds
+	 * @param now
+	 *            the content to hold instead
+	 */
+	static void replaced(IObjectContainer parent, IObjectContainer child, ContainerData old, ContainerData now) {
+		if (parent instanceof ObjectTree) {
+			((ObjectTree) parent).replaced(child, old, now);
+		} else {
+			((ObjectList) parent).replaced(child, old, now);
+		}
+	}
+
+	/**
+	 * Sets the parent of a container, null to detach it.
+	 *
+	 * @param container
+	 *            the container
+	 * @param parent
+	 *            the parent
+	 */
+	static void setParent(IObjectContainer container, IObjectContainer parent) {
+		if (container instanceof ObjectTree) {
+			((ObjectTree) container).parent = parent;
+		} else {
+			((ObjectList) container).parent = parent;
+		}
+	}
+
+	/**
+	 * The containers handed out for the nested contents of a container, so
+	 * that the same content is always presented by the same container.
+	 */
+	static final class Children {
+		private Map<ContainerData, IObjectContainer> map;
+
+		synchronized IObjectContainer get(IObjectContainer parent, ContainerData data) {
+			if (map == null) {
+				map = new IdentityHashMap<ContainerData, IObjectContainer>(4);
+			}
+			IObjectContainer child = map.get(data);
+			if (child == null) {
+				child = data.newContainer();
+				setParent(child, parent);
+				map.put(data, child);
+			}
+			return child;
+		}
+
+		synchronized void replaced(ContainerData old, ContainerData now) {
+			if (map != null) {
+				IObjectContainer child = map.remove(old);
+				if (child != null) {
+					map.put(now, child);
+				}
+			}
+		}
+
+		/**
+		 * Detaches the container of a value taken out of the parent.
+		 *
+		 * @param stored
+		 *            the stored value
+		 * @return the value, as a container if it is a content.
+		 */
+		synchronized Object release(Object stored) {
+			if (!(stored instanceof ContainerData)) {
+				return stored;
+			}
+			IObjectContainer child = map == null ? null : map.remove(stored);
+			if (child == null) {
+				child = ((ContainerData) stored).newContainer();
+			} else {
+				setParent(child, null);
+			}
+			return child;
+		}
+	}
+}
@@ -38,9 +38,8 @@ import java.util.Set;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.jxpath.BasicVariables;
-import org.apache.commons.jxpath.ClassFunctions;
+import org.apache.commons.jxpath.CompiledExpression;
 import org.apache.commons.jxpath.FunctionLibrary;
-import org.apache.commons.jxpath.Functions;
 import org.apache.commons.jxpath.IdentityManager;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.Pointer;
@@ -49,14 +48,11 @@ import org.apache.commons.jxpath.ri.model.beans.BeanPointerFactory;
 import org.apache.commons.jxpath.ri.model.beans.NullPointer;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.paxml.annotation.Util;
-import org.paxml.el.IUtilFunctionsFactory;
 import org.paxml.file.IFile;
 import org.paxml.launch.Paxml;
 import org.paxml.security.Secret;
 import org.paxml.security.SecretRepository;
 import org.paxml.tag.ITag;
-import org.paxml.tag.ITagLibrary;
 import org.paxml.tag.invoker.FileInvokerTag;
 import org.paxml.util.CryptoUtils;
 import org.paxml.util.PaxmlUtils;
@@ -228,6 +224,37 @@ public class Context implements IdentityManager {
 
 	}
 
+	/**
+	 * The xpath context over the consts of a context, valid as long as no
+	 * consts are changed in the context or its ancestors.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private static final class XpathScope {
+		private final long constsVersion;
+		private final FunctionLibrary functions;
+		private final JXPathContext xpathContext;
+
+		private XpathScope(long constsVersion, FunctionLibrary functions, JXPathContext xpathContext) {
+			this.constsVersion = constsVersion;
+			this.functions = functions;
+			this.xpathContext = xpathContext;
+		}
+	}
+
+	/**
+	 * The max number of compiled xpath expressions to cache.
+	 */
+	private static final int MAX_COMPILED_XPATHS = 1000;
+
+	private static final Map<String, CompiledExpression> COMPILED_XPATHS = Collections.synchronizedMap(new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+			return size() > MAX_COMPILED_XPATHS;
+		}
+	});
+
 	/**
 	 * The name of the default parameter.
 	 */
@@ -244,6 +271,11 @@ public class Context implements IdentityManager {
 
 	private static final ThreadLocal<Context> THREAD_CONTEXT = new ThreadLocal<Context>();
 
+	/**
+	 * The global internal objects shared by forked contexts.
+	 */
+	private static final PrivateKeys[] SHARED_ON_FORK = { PrivateKeys.PAXML, PrivateKeys.PAXML_LISTENER, PrivateKeys.ENTITY_LISTENER, PrivateKeys.TAG_LISTENER, PrivateKeys.LOCALE };
+
 	private IEntity entity;
 
 	private final long processId;
@@ -256,6 +288,11 @@ public class Context implements IdentityManager {
 	private final Map<Object, Object> globalMap;
 	private final Context parent;
 	private final Context root;
+	/**
+	 * Increased on every const change of this context.
+	 */
+	private long constsModCount;
+	private XpathScope xpathScope;
 
 	/**
 	 * Create from parent context.
@@ -265,6 +302,10 @@ public class Context implements IdentityManager {
 	 * 
 	 */
 	public Context(final Context parent) {
+		this(parent, parent == null ? null : parent.globalMap);
+	}
+
+	private Context(final Context parent, final Map<Object, Object> globalMap) {
 		if (parent == null) {
 			throw new PaxmlRuntimeException("Parent context not given!");
 		}
@@ -272,10 +313,41 @@ public class Context implements IdentityManager {
 		root = parent.root;
 		this.processId = root.processId;
 		this.id = parent.id + 1;
-		globalMap = parent.globalMap;
+		this.globalMap = globalMap;
 
 	}
 
+	/**
+	 * Create a child context for executing tags on another thread, in parallel
+	 * with this context's thread and other forked contexts. The forked context
+	 * has its own execution stack which starts as a copy of this context's
+	 * stack, and its own global internal objects, except for the paxml, the
+	 * listeners and the locale which are shared. It also acts as the context
+	 * of the current entity, so that the consts and results meant for the
+	 * entity context stay in the forked context.
+	 * 
+	 * While forked contexts are executing, this context and its parents should
+	 * not be changed.
+	 * 
+	 * @return the forked context, never null
+	 */
+	public Context fork() {
+		Context forked = new Context(this, new LinkedHashMap<Object, Object>(0));
+		for (PrivateKeys key : SHARED_ON_FORK) {
+			Object value = globalMap.get(key);
+			if (value != null) {
+				forked.globalMap.put(key, value);
+			}
+		}
+		Stack stack = new Stack();
+		stack.addAll(getStack());
+		forked.globalMap.put(PrivateKeys.STACK, stack);
+		if (!stack.isEmpty()) {
+			forked.entity = stack.getFirst().getEntity();
+		}
+		return forked;
+	}
+
 	/**
 	 * Create a root context.
 	 * 
@@ -372,6 +444,7 @@ public class Context implements IdentityManager {
 		if (null != rootTagName) {
 			idToTagName.put(id, rootTagName);
 		}
+		constsModCount++;
 
 	}
 
@@ -392,6 +465,7 @@ public class Context implements IdentityManager {
 	 */
 	public Object setConst(String id, String rootTagName, Object c, boolean checkConflict) {
 		final Object existing = idConstsMap.put(id, c);
+		constsModCount++;
 		if (existing != null && checkConflict) {
 			throw new PaxmlRuntimeException("Id conflict: " + id);
 		}
@@ -423,6 +497,7 @@ public class Context implements IdentityManager {
 		if (rootTags != null) {
 			idToTagName.putAll(rootTags);
 		}
+		constsModCount++;
 	}
 
 	/**
@@ -434,6 +509,7 @@ public class Context implements IdentityManager {
 	 */
 	public Object removeConst(String id) {
 		idToTagName.remove(id);
+		constsModCount++;
 		return idConstsMap.remove(id);
 	}
 
@@ -534,6 +610,25 @@ public class Context implements IdentityManager {
 		return null;
 	}
 
+	/**
+	 * Find the context holding a const id, searching from this context up to
+	 * the root context.
+	 * 
+	 * @param id
+	 *            the id
+	 * @return the context holding the const, null if not found.
+	 */
+	public Context findConstContext(String id) {
+		Context context = this;
+		do {
+			if (context.idConstsMap.containsKey(id)) {
+				return context;
+			}
+			context = context.parent;
+		} while (context != null);
+		return null;
+	}
+
 	/**
 	 * 
 	 * Find const id by given value.
@@ -883,29 +978,10 @@ public class Context implements IdentityManager {
 	 *         "alwaysList" parameter is false.
 	 */
 	public Object xpathSelect(Object from, String xpath, boolean alwaysList) {
-		Variables vars = new BasicVariables();
-
-		if (from == null) {
-			ObjectTree nameGlobal = getRootContext().getNameMap(false, true);
-			ObjectTree nameLocal = getNameMap(true, false);
-			
-			vars.declareVariable(XPATH_NAME_GLOBAL_VAR, nameGlobal);
-			vars.declareVariable(XPATH_NAME_LOCAL_VAR, nameLocal);
-
-			ObjectTree nameAuto = new ObjectTree(null, nameGlobal);
-			nameAuto.addValues(nameLocal);
-
-			from = nameAuto;
-		}
-
-		JXPathContext xpathContext = JXPathContext.newContext(from);
-		xpathContext.setVariables(vars);
-		xpathContext.setIdentityManager(this);
-
-		setXpathFunctions(xpathContext);
+		JXPathContext xpathContext = getXpathContext(from);
 
 		try {
-			Object selected = xpathContext.iterate(xpath);
+			Object selected = compileXpath(xpath).iterate(xpathContext);
 
 			List<Object> list = new ArrayList<Object>(1);
 			if (selected instanceof Iterator) {
@@ -964,41 +1040,77 @@ public class Context implements IdentityManager {
 		}
 	}
 
-	private void setXpathFunctions(JXPathContext xpathContext) {
-		Functions existing = xpathContext.getFunctions();
-		final FunctionLibrary funcLib;
-		if (existing == null) {
-			funcLib = new FunctionLibrary();
-		} else if (existing instanceof FunctionLibrary) {
-			funcLib = (FunctionLibrary) existing;
-		} else {
-			funcLib = new FunctionLibrary();
-			funcLib.addFunctions(existing);
+	private JXPathContext getXpathContext(Object from) {
+		final Paxml paxml = getPaxml();
+		final FunctionLibrary funcLib = paxml == null ? null : paxml.getParser().getXpathFunctions(this);
+		if (from != null) {
+			return newXpathContext(from, new BasicVariables(), funcLib);
 		}
+		final long version = getScopeConstsVersion();
+		XpathScope scope = xpathScope;
+		if (scope == null || scope.constsVersion != version || scope.functions != funcLib) {
+			// the name trees share the content of the consts, so building them
+			// is cheap, and they only need rebuilding when consts are changed
+			ObjectTree nameGlobal = root.getNameMap(false, true);
+			ObjectTree nameLocal = getNameMap(true, false);
 
-		for (ITagLibrary lib : getPaxml().getParser().getTagLibraries()) {
-			for (String name : lib.getUtilFunctionsFactoryNames()) {
-				Class<? extends IUtilFunctionsFactory> clazz = lib.getUtilFunctionsFactory(name);
-				Class<?> xpathFunClass = ReflectUtils.createObject(clazz).getXpathUtilFunctions(this);
-				if (xpathFunClass == null) {
-					// skip this one
-					continue;
-				}
-				Util util = ReflectUtils.getAnnotation(clazz, Util.class);
-				if (util == null) {
-					throw new PaxmlRuntimeException("Internal error: util function factory is not annotated: " + clazz.getName());
-				}
-				funcLib.addFunctions(new ClassFunctions(xpathFunClass, util.value()));
-			}
+			Variables vars = new BasicVariables();
+			vars.declareVariable(XPATH_NAME_GLOBAL_VAR, nameGlobal);
+			vars.declareVariable(XPATH_NAME_LOCAL_VAR, nameLocal);
+
+			ObjectTree nameAuto = new ObjectTree(null, nameGlobal);
+			nameAuto.addValues(nameLocal);
+
+			scope = new XpathScope(version, funcLib, newXpathContext(nameAuto, vars, funcLib));
+			xpathScope = scope;
+		}
+		return scope.xpathContext;
+	}
+
+	/**
+	 * Get the sum of the const change counts of this context and its
+	 * ancestors, whose consts the xpath scope is built from, including the
+	 * changes made inside const trees and lists. The counts only grow, so the
+	 * sum changes whenever any of them changes.
+	 * 
+	 * @return the version
+	 */
+	private long getScopeConstsVersion() {
+		long version = 0;
+		for (Context context = this; context != null; context = context.parent) {
+			version += context.constsModCount + context.idConstsMap.getChanges();
+		}
+		return version;
+	}
+
+	private JXPathContext newXpathContext(Object from, Variables vars, FunctionLibrary funcLib) {
+		JXPathContext xpathContext = JXPathContext.newContext(from);
+		xpathContext.setVariables(vars);
+		xpathContext.setIdentityManager(this);
+		if (funcLib != null) {
+			xpathContext.setFunctions(funcLib);
 		}
+		return xpathContext;
+	}
 
-		xpathContext.setFunctions(funcLib);
+	private static CompiledExpression compileXpath(String xpath) {
+		CompiledExpression compiled = COMPILED_XPATHS.get(xpath);
+		if (compiled == null) {
+			compiled = JXPathContext.compile(xpath);
+			COMPILED_XPATHS.put(xpath, compiled);
+		}
+		return compiled;
 	}
 
 	private Object getXpathResultObject(Object obj) {
 		if (obj instanceof Pointer) {
 			obj = ((Pointer) obj).getValue();
 		}
+		// the results come from the cached name trees, which must not be
+		// changed through them
+		if (obj instanceof IObjectContainer) {
+			obj = ((IObjectContainer) obj).copy();
+		}
 
 		return obj;
 	}
@@ -1135,7 +1247,8 @@ public class Context implements IdentityManager {
 
 	/**
 	 * Get the internal map for holding the consts. NB! be careful when
-	 * modifying it.
+	 * modifying it, changes made through it are not seen by the cached xpath
+	 * scope, use setConst() instead.
 	 * 
 	 * @return the map
 	 */
@@ -1338,19 +1451,76 @@ public class Context implements IdentityManager {
 		this.returning = returning;
 	}
 
+	/**
+	 * Find the context owning the closeables registered with this context,
+	 * which is the context of the entity being executed, or the root context
+	 * if there is no such entity.
+	 * 
+	 * @return the context, never null
+	 */
+	private Context getCloseablesOwner() {
+		Context context = this;
+		while (context.entity == null && context.parent != null) {
+			context = context.parent;
+		}
+		return context;
+	}
+
+	/**
+	 * Register closeables to be closed when the entity being executed exits,
+	 * so that a closeable stays open while the entity calls other entities.
+	 * 
+	 * @param Closeables
+	 *            the closeables
+	 */
 	public void registerCloseable(Closeable... Closeables) {
-		List<Closeable> list = (List) getInternalObject(PrivateKeys.CLOSEABLES, true);
+		final Context owner = getCloseablesOwner();
+		List<Closeable> list = (List) owner.getInternalObject(PrivateKeys.CLOSEABLES, false);
 		if (list == null) {
 			list = new ArrayList<Closeable>();
-			setInternalObject(PrivateKeys.CLOSEABLES, list, true);
+			owner.setInternalObject(PrivateKeys.CLOSEABLES, list, false);
 		}
 		for (Closeable c : Closeables) {
 			list.add(c);
 		}
 	}
 
+	/**
+	 * Flush the registered closeables that are also flushables, without
+	 * closing them. Unlike closing, this does not hide errors, so it should be
+	 * called when the entity finishes normally.
+	 * 
+	 * @throws PaxmlRuntimeException
+	 *             the first flush error, after all the others are flushed
+	 */
+	public void flushCloseables() {
+		List<Closeable> list = (List) getCloseablesOwner().getInternalObject(PrivateKeys.CLOSEABLES, false);
+		if (list == null) {
+			return;
+		}
+		RuntimeException error = null;
+		for (Closeable c : new ArrayList<Closeable>(list)) {
+			if (c instanceof Flushable) {
+				try {
+					((Flushable) c).flush();
+				} catch (Exception e) {
+					if (error == null) {
+						error = e instanceof PaxmlRuntimeException ? (PaxmlRuntimeException) e : new PaxmlRuntimeException("Cannot flush: " + c, e);
+					}
+				}
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Flush and close the closeables registered during the execution of the
+	 * current entity, ignoring errors.
+	 */
 	public void closeAllCloseables() {
-		List<Closeable> list = (List) getInternalObject(PrivateKeys.CLOSEABLES, true);
+		List<Closeable> list = (List) getCloseablesOwner().getInternalObject(PrivateKeys.CLOSEABLES, false);
 		if (list != null) {
 			for (Iterator<Closeable> it = list.iterator(); it.hasNext();) {
 				Closeable c = it.next();
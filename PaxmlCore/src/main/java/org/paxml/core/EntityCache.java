@@ -0,0 +1,191 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.paxml.tag.ITagLibrary;
+
+/**
+ * Thread safe cache of parsed paxml entities, which can be shared by multiple
+ * parsers. The entries are keyed by the paxml resource together with the
+ * ordered list of tag library classes used to parse it and the resources known
+ * to the parser's locator, since the parsed tags resolve other resources with
+ * that locator. An entry is dropped as soon as its entity reports being
+ * modified.
+ *
+ * The cached entities are treated as immutable once put in the cache.
+ *
+ * @author Xuetao Niu
+ *
+ */
+public class EntityCache {
+
+	private static final EntityCache DEFAULT = new EntityCache();
+
+	/**
+	 * The cache key.
+	 *
+	 * @author Xuetao Niu
+	 *
+	 */
+	private static final class Key {
+		private final PaxmlResource resource;
+		private final List<String> tagLibraries;
+		private final ResourceLocator.ResourceSet resources;
+		private final int hash;
+
+		private Key(PaxmlResource resource, List<ITagLibrary> libs, ResourceLocator locator) {
+			this.resource = resource;
+			this.tagLibraries = new ArrayList<String>(libs.size());
+			for (ITagLibrary lib : libs) {
+				tagLibraries.add(lib.getClass().getName());
+			}
+			this.resources = locator.getResourceSet();
+			this.hash = 31 * (31 * resource.hashCode() + tagLibraries.hashCode()) + resources.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && resource.equals(other.resource) && tagLibraries.equals(other.tagLibraries)
+					&& resources.equals(other.resources);
+		}
+	}
+
+	private final ConcurrentMap<Key, IEntity> entities = new ConcurrentHashMap<Key, IEntity>();
+
+	/**
+	 * Get the jvm wide cache.
+	 *
+	 * @return the cache, never null
+	 */
+	public static EntityCache getDefaultCache() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Get a cached entity which is not modified since it was parsed.
+	 *
+	 * @param resource
+	 *            the paxml resource
+	 * @param tagLibraries
+	 *            the tag libraries of the parser
+	 * @param locator
+	 *            the resource locator of the parser
+	 * @return the entity, or null if not cached or modified.
+	 */
+	public IEntity get(PaxmlResource resource, List<ITagLibrary> tagLibraries, ResourceLocator locator) {
+		return get(resource, tagLibraries, locator, EntityChangeDetectors.ALWAYS);
+	}
+
+	/**
+	 * Get a cached entity which is not modified since it was parsed.
+	 *
+	 * @param resource
+	 *            the paxml resource
+	 * @param tagLibraries
+	 *            the tag libraries of the parser
+	 * @param locator
+	 *            the resource locator of the parser
+	 * @param detector
+	 *            tells if the cached entity is modified
+	 * @return the entity, or null if not cached or modified.
+	 */
+	public IEntity get(PaxmlResource resource, List<ITagLibrary> tagLibraries, ResourceLocator locator, IEntityChangeDetector detector) {
+		final Key key = new Key(resource, tagLibraries, locator);
+		IEntity entity = entities.get(key);
+		if (entity != null && detector.isModified(entity)) {
+			entities.remove(key, entity);
+			return null;
+		}
+		return entity;
+	}
+
+	/**
+	 * Put a newly parsed entity into the cache. If another parser has already
+	 * cached an unmodified entity for the same key, the existing one wins.
+	 *
+	 * @param resource
+	 *            the paxml resource
+	 * @param tagLibraries
+	 *            the tag libraries of the parser
+	 * @param locator
+	 *            the resource locator of the parser
+	 * @param entity
+	 *            the parsed entity
+	 * @return the entity that ends up in the cache, never null
+	 */
+	public IEntity put(PaxmlResource resource, List<ITagLibrary> tagLibraries, ResourceLocator locator, IEntity entity) {
+		final Key key = new Key(resource, tagLibraries, locator);
+		IEntity existing = entities.putIfAbsent(key, entity);
+		while (existing != null) {
+			if (!existing.isModified()) {
+				return existing;
+			}
+			if (entities.replace(key, existing, entity)) {
+				break;
+			}
+			existing = entities.putIfAbsent(key, entity);
+		}
+		return entity;
+	}
+
+	/**
+	 * Remove all cached entities of a resource.
+	 *
+	 * @param resource
+	 *            the paxml resource
+	 */
+	public void remove(PaxmlResource resource) {
+		for (Key key : entities.keySet()) {
+			if (key.resource.equals(resource)) {
+				entities.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Remove all cached entities.
+	 */
+	public void clear() {
+		entities.clear();
+	}
+
+	/**
+	 * Get the number of cached entities.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return entities.size();
+	}
+}
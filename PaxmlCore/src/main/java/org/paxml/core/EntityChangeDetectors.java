@@ -0,0 +1,116 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.core;
+
+import org.apache.commons.lang3.StringUtils;
+import org.paxml.util.PaxmlUtils;
+
+/**
+ * The built-in entity change detectors.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public final class EntityChangeDetectors {
+	/**
+	 * The system property or environment variable to choose the default
+	 * change detector with, see create(String) for the values.
+	 */
+	public static final String SYSTEM_PROPERTY = "paxml.entity.changeDetection";
+
+	/**
+	 * Checks the resource of the entity upon every lookup.
+	 */
+	public static final IEntityChangeDetector ALWAYS = new IEntityChangeDetector() {
+
+		public boolean isModified(IEntity entity) {
+			return entity.isModified();
+		}
+
+	};
+
+	/**
+	 * Never checks, the cached entities are always used.
+	 */
+	public static final IEntityChangeDetector FROZEN = new IEntityChangeDetector() {
+
+		public boolean isModified(IEntity entity) {
+			return false;
+		}
+
+	};
+
+	private static String defaultSpec;
+	private static IEntityChangeDetector defaultDetector = ALWAYS;
+
+	private EntityChangeDetectors() {
+
+	}
+
+	/**
+	 * Create a change detector from its description.
+	 * 
+	 * @param spec
+	 *            one of these: "always", "frozen", "interval:&lt;millis&gt;"
+	 *            which checks each resource at most once per the given
+	 *            milliseconds, or "monitor:&lt;millis&gt;" which watches the
+	 *            resource directories in background with the given polling
+	 *            interval.
+	 * @return the change detector, never null
+	 */
+	public static IEntityChangeDetector create(String spec) {
+		final String type = StringUtils.substringBefore(spec, ":").trim();
+		final String arg = StringUtils.substringAfter(spec, ":").trim();
+		if ("always".equalsIgnoreCase(type)) {
+			return ALWAYS;
+		} else if ("frozen".equalsIgnoreCase(type)) {
+			return FROZEN;
+		} else if ("interval".equalsIgnoreCase(type)) {
+			return new IntervalChangeDetector(parseMillis(spec, arg, IntervalChangeDetector.DEFAULT_INTERVAL));
+		} else if ("monitor".equalsIgnoreCase(type)) {
+			return new FileMonitorChangeDetector(parseMillis(spec, arg, FileMonitorChangeDetector.DEFAULT_INTERVAL));
+		}
+		throw new PaxmlRuntimeException("Unknown entity change detection: " + spec);
+	}
+
+	/**
+	 * Get the change detector given by the system property or environment
+	 * variable. The same detector is shared by all callers until the given
+	 * value changes.
+	 * 
+	 * @return the change detector given, or ALWAYS if not given.
+	 */
+	public static synchronized IEntityChangeDetector getDefault() {
+		String spec = StringUtils.trimToNull(PaxmlUtils.getSystemProperty(SYSTEM_PROPERTY));
+		if (!StringUtils.equals(spec, defaultSpec)) {
+			defaultDetector = spec == null ? ALWAYS : create(spec);
+			defaultSpec = spec;
+		}
+		return defaultDetector;
+	}
+
+	private static long parseMillis(String spec, String arg, long defaultValue) {
+		if (StringUtils.isBlank(arg)) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(arg);
+		} catch (NumberFormatException e) {
+			throw new PaxmlRuntimeException("Invalid milliseconds given in entity change detection: " + spec);
+		}
+	}
+}
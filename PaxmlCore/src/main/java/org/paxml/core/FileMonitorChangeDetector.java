@@ -0,0 +1,195 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.io.filefilter.FileFileFilter;
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
+import org.apache.commons.io.monitor.FileAlterationMonitor;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+
+/**
+ * Change detector that watches the directories of the cached entities in a
+ * background thread, so that looking up a cached entity does no file io. An
+ * entity is checked against its file only once when first seen, after that it
+ * is only considered modified once the monitor reports its file as changed,
+ * deleted or recreated. Entities not backed by files are never modified.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public class FileMonitorChangeDetector implements IEntityChangeDetector, Closeable {
+	/**
+	 * The default polling interval in milliseconds.
+	 */
+	public static final long DEFAULT_INTERVAL = 1000;
+
+	/**
+	 * A watched entity.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private static final class Watched {
+		private final IEntity entity;
+		private volatile boolean modified;
+
+		private Watched(IEntity entity) {
+			this.entity = entity;
+		}
+	}
+
+	private final ConcurrentMap<PaxmlResource, Watched> byResource = new ConcurrentHashMap<PaxmlResource, Watched>();
+	private final ConcurrentMap<File, Watched> byFile = new ConcurrentHashMap<File, Watched>();
+	private final ConcurrentMap<File, FileAlterationObserver> observers = new ConcurrentHashMap<File, FileAlterationObserver>();
+	private final FileAlterationMonitor monitor;
+	private final FileAlterationListenerAdaptor listener = new FileAlterationListenerAdaptor() {
+
+		@Override
+		public void onFileChange(File file) {
+			markModified(file);
+		}
+
+		@Override
+		public void onFileDelete(File file) {
+			markModified(file);
+		}
+
+		@Override
+		public void onFileCreate(File file) {
+			markModified(file);
+		}
+
+	};
+	private boolean started;
+	private boolean closed;
+
+	/**
+	 * Construct with the default polling interval.
+	 */
+	public FileMonitorChangeDetector() {
+		this(DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * Construct with a polling interval.
+	 * 
+	 * @param interval
+	 *            the milliseconds between two polls of the watched directories
+	 */
+	public FileMonitorChangeDetector(long interval) {
+		monitor = new FileAlterationMonitor(interval);
+		monitor.setThreadFactory(new ThreadFactory() {
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "paxml-entity-monitor");
+				t.setDaemon(true);
+				return t;
+			}
+
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isModified(IEntity entity) {
+		final PaxmlResource res = entity.getResource();
+		Watched watched = byResource.get(res);
+		if (watched != null && watched.entity == entity) {
+			return watched.modified;
+		}
+		// 1st time seen, start watching before checking, so that no change
+		// in between gets lost.
+		watched = new Watched(entity);
+		byResource.put(res, watched);
+		final File file = getFile(res);
+		if (file != null) {
+			byFile.put(file, watched);
+			watch(file.getParentFile());
+		}
+		if (entity.isModified()) {
+			watched.modified = true;
+		}
+		return watched.modified;
+	}
+
+	/**
+	 * Stop watching.
+	 */
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (started) {
+			try {
+				monitor.stop(0);
+			} catch (Exception e) {
+				throw new PaxmlRuntimeException("Cannot stop entity file monitor", e);
+			}
+		}
+	}
+
+	private void markModified(File file) {
+		Watched watched = byFile.remove(file);
+		if (watched != null) {
+			watched.modified = true;
+		}
+	}
+
+	private synchronized void watch(File dir) {
+		if (closed || observers.containsKey(dir)) {
+			return;
+		}
+		FileAlterationObserver observer = new FileAlterationObserver(dir, FileFileFilter.FILE);
+		try {
+			observer.initialize();
+		} catch (Exception e) {
+			throw new PaxmlRuntimeException("Cannot watch directory: " + dir, e);
+		}
+		observer.addListener(listener);
+		monitor.addObserver(observer);
+		observers.put(dir, observer);
+		if (!started) {
+			try {
+				monitor.start();
+			} catch (Exception e) {
+				throw new PaxmlRuntimeException("Cannot start entity file monitor", e);
+			}
+			started = true;
+		}
+	}
+
+	private static File getFile(PaxmlResource res) {
+		try {
+			File file = res.getSpringResource().getFile().getCanonicalFile();
+			File dir = file.getParentFile();
+			// the same path as the observer reports it
+			return dir == null ? null : new File(dir, file.getName());
+		} catch (IOException e) {
+			// not a file, not modifiable.
+			return null;
+		}
+	}
+}
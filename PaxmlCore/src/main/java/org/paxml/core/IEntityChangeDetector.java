@@ -0,0 +1,37 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.core;
+
+/**
+ * Strategy to tell if a cached paxml entity is out of date compared to its
+ * resource, and thus should be parsed again.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public interface IEntityChangeDetector {
+	/**
+	 * Check if the resource of a cached entity is changed since it was parsed.
+	 * This is called upon every lookup of a cached entity, so it should be
+	 * cheap.
+	 * 
+	 * @param entity
+	 *            the cached entity
+	 * @return true if changed, false if not.
+	 */
+	boolean isModified(IEntity entity);
+}
@@ -0,0 +1,92 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Change detector that checks the resource of an entity at most once per
+ * interval, and answers from the last check in between.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public class IntervalChangeDetector implements IEntityChangeDetector {
+	/**
+	 * The default interval in milliseconds.
+	 */
+	public static final long DEFAULT_INTERVAL = 2000;
+
+	/**
+	 * The result of the last check of a resource.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private static final class Check {
+		private final IEntity entity;
+		private final boolean modified;
+		private final long expiry;
+
+		private Check(IEntity entity, boolean modified, long expiry) {
+			this.entity = entity;
+			this.modified = modified;
+			this.expiry = expiry;
+		}
+	}
+
+	private final ConcurrentMap<PaxmlResource, Check> checks = new ConcurrentHashMap<PaxmlResource, Check>();
+	private final long interval;
+
+	/**
+	 * Construct with the default interval.
+	 */
+	public IntervalChangeDetector() {
+		this(DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * Construct with an interval.
+	 * 
+	 * @param interval
+	 *            the min milliseconds between two checks of the same resource
+	 */
+	public IntervalChangeDetector(long interval) {
+		this.interval = interval;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isModified(IEntity entity) {
+		final PaxmlResource res = entity.getResource();
+		final long now = System.currentTimeMillis();
+		Check check = checks.get(res);
+		// a reparsed entity is always checked the 1st time
+		if (check != null && check.entity == entity && now < check.expiry) {
+			return check.modified;
+		}
+		final boolean modified = entity.isModified();
+		checks.put(res, new Check(entity, modified, now + interval));
+		return modified;
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+}
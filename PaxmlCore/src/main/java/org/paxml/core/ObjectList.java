@@ -16,27 +16,74 @@
  */
 package org.paxml.core;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.ListIterator;
 
-import org.paxml.el.UtilFunctions;
 import org.paxml.util.ReflectUtils;
 import org.paxml.util.XmlUtils;
 
-import sun.security.action.PutAllAction;
-
 /**
  * The object list.
  * 
+ * Like ObjectTree, the items are kept in a ContainerData that copies share
+ * until one of them changes. The list extends ArrayList for its type only: the
+ * java 8 functional list methods, like forEach() and removeIf(), and streams
+ * are not supported.
+ * 
  * @author Xuetao Niu
  * 
  */
 public class ObjectList extends ArrayList<Object> implements IObjectContainer {
-	private String name;
+
+	/**
+	 * The shareable content of a list.
+	 */
+	static final class Data extends ContainerData {
+		private final String name;
+		private final ArrayList<Object> list;
+		boolean dynamic;
+
+		private Data(String name, ArrayList<Object> list, boolean dynamic) {
+			this.name = name;
+			this.list = list;
+			this.dynamic = dynamic;
+		}
+
+		@Override
+		Data share() {
+			shared = true;
+			Data data = new Data(name, list, dynamic);
+			data.shared = true;
+			return data;
+		}
+
+		@Override
+		Data unshare() {
+			ArrayList<Object> newList = new ArrayList<Object>(list);
+			for (Object item : newList) {
+				markShared(item);
+			}
+			return new Data(name, newList, dynamic);
+		}
+
+		@Override
+		ObjectList newContainer() {
+			ObjectList list = new ObjectList(name, dynamic);
+			list.data = this;
+			return list;
+		}
+	}
+
 	private String id;
-	boolean _dynamic;
+	private Data data;
+	IObjectContainer parent;
+	private final ContainerData.Children children = new ContainerData.Children();
 
 	/**
 	 * Construct from a list of existing objects.
@@ -46,14 +93,55 @@ public class ObjectList extends ArrayList<Object> implements IObjectContainer {
 	 *            justAdd().
 	 */
 	public ObjectList(String name, boolean dynamic, final Object... existing) {
-		super(existing.length);
-		this.name = name;
-		this._dynamic = dynamic;
+		super(0);
+		data = new Data(name, new ArrayList<Object>(existing.length), dynamic);
 		for (Object e : existing) {
 			add(e);
 		}
 	}
 
+	/**
+	 * Makes this list changeable, copying the shared levels from the root of
+	 * its parents down to it.
+	 */
+	void writable() {
+		if (parent != null) {
+			ContainerData.writable(parent);
+		}
+		if (data.shared) {
+			Data old = data;
+			data = old.unshare();
+			if (parent != null) {
+				ContainerData.replaced(parent, this, old, data);
+			}
+		}
+	}
+
+	void replaced(IObjectContainer child, ContainerData old, ContainerData now) {
+		ArrayList<Object> list = data.list;
+		for (int i = list.size() - 1; i >= 0; i--) {
+			if (list.get(i) == old) {
+				list.set(i, now);
+				children.replaced(old, now);
+				return;
+			}
+		}
+		// no longer in this list
+		ContainerData.setParent(child, null);
+	}
+
+	Data share() {
+		return data.share();
+	}
+
+	boolean isDynamic() {
+		return data.dynamic;
+	}
+
+	private Object toValue(Object stored) {
+		return stored instanceof ContainerData ? children.get(this, (ContainerData) stored) : stored;
+	}
+
 	@Override
 	public List<Object> list() {
 		return this;
@@ -68,64 +156,284 @@ public class ObjectList extends ArrayList<Object> implements IObjectContainer {
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Makes a copy of the current list in O(1), sharing the items until either
+	 * list changes.
+	 * 
+	 * @return the copy
 	 */
 	public ObjectList copy() {
-		ObjectList newList = new ObjectList(name, _dynamic);
-		for (Object item : this) {
-			if (item instanceof IObjectContainer) {
-				item = ((IObjectContainer) item).copy();
-			}
-			newList.add(item);
-		}
+		ObjectList newList = new ObjectList(name(), isDynamic());
+		newList.data = share();
 		return newList;
 	}
 
+	@Override
+	public Object clone() {
+		return copy();
+	}
+
 	@Override
 	public void addValue(String key, Object value) {
 		ObjectTree tree = new ObjectTree(key);
-		tree.put(key, checkToCopy(value));
+		tree.put(key, value);
 		add(tree);
 	}
 
-	private Object checkToCopy(Object value) {
-		if (value instanceof IObjectContainer) {
-			value = ((IObjectContainer) value).copy();
+	@Override
+	public int size() {
+		return data.list.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return data.list.isEmpty();
+	}
+
+	@Override
+	public Object get(int index) {
+		return toValue(data.list.get(index));
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		for (int i = 0, n = size(); i < n; i++) {
+			if (eq(o, get(i))) {
+				return i;
+			}
 		}
-		return value;
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		for (int i = size() - 1; i >= 0; i--) {
+			if (eq(o, get(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	private static boolean eq(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object[] array = new Object[size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = get(i);
+		}
+		return array;
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a) {
+		Object[] array = toArray();
+		if (a.length < array.length) {
+			return (T[]) Arrays.copyOf(array, array.length, a.getClass());
+		}
+		System.arraycopy(array, 0, a, 0, array.length);
+		if (a.length > array.length) {
+			a[array.length] = null;
+		}
+		return a;
 	}
 
 	@Override
 	public Object set(int index, Object element) {
-		return super.set(index, checkToCopy(element));
+		Object stored = ContainerData.toStored(element);
+		writable();
+		return children.release(data.list.set(index, stored));
 	}
 
 	@Override
 	public boolean add(Object e) {
-		return super.add(checkToCopy(e));
+		Object stored = ContainerData.toStored(e);
+		writable();
+		return data.list.add(stored);
 	}
 
 	@Override
 	public void add(int index, Object element) {
-		super.add(index, checkToCopy(element));
+		Object stored = ContainerData.toStored(element);
+		writable();
+		data.list.add(index, stored);
 	}
 
 	@Override
-	public boolean addAll(Collection<? extends Object> c) {
-		ArrayList<Object> col = new ArrayList<Object>(c.size());
-		for (Object v : c) {
-			col.add(checkToCopy(v));
+	public Object remove(int index) {
+		writable();
+		return children.release(data.list.remove(index));
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		int index = indexOf(o);
+		if (index < 0) {
+			return false;
 		}
-		return super.addAll(col);
+		remove(index);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		if (data.list.isEmpty()) {
+			return;
+		}
+		writable();
+		for (Object stored : data.list) {
+			children.release(stored);
+		}
+		data.list.clear();
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Object> c) {
+		return addAll(size(), c);
 	}
 
 	@Override
 	public boolean addAll(int index, Collection<? extends Object> c) {
-		ArrayList<Object> col = new ArrayList<Object>(c.size());
-		for (Object v : c) {
-			col.add(checkToCopy(v));
+		Object[] values = c.toArray();
+		if (index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+		}
+		List<Object> stored = new ArrayList<Object>(values.length);
+		for (Object v : values) {
+			stored.add(ContainerData.toStored(v));
+		}
+		writable();
+		return data.list.addAll(index, stored);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		return removeMatching(c, true);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		return removeMatching(c, false);
+	}
+
+	private boolean removeMatching(Collection<?> c, boolean contained) {
+		boolean changed = false;
+		for (int i = size() - 1; i >= 0; i--) {
+			if (c.contains(get(i)) == contained) {
+				remove(i);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public void ensureCapacity(int minCapacity) {
+		writable();
+		data.list.ensureCapacity(minCapacity);
+	}
+
+	@Override
+	public void trimToSize() {
+		writable();
+		data.list.trimToSize();
+	}
+
+	/**
+	 * Sorts the items, keeping the containers already handed out for them.
+	 * 
+	 * @param c
+	 *            the comparator, null for the natural order
+	 */
+	public void sort(final Comparator<? super Object> c) {
+		final Object[] values = toArray();
+		Integer[] order = new Integer[values.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
 		}
-		return super.addAll(index, col);
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return c == null ? ((Comparable<Object>) values[a]).compareTo(values[b]) : c.compare(values[a], values[b]);
+			}
+		});
+		writable();
+		Object[] stored = data.list.toArray();
+		for (int i = 0; i < order.length; i++) {
+			data.list.set(i, stored[order[i]]);
+		}
+	}
+
+	@Override
+	public Iterator<Object> iterator() {
+		return listIterator(0);
+	}
+
+	@Override
+	public ListIterator<Object> listIterator() {
+		return listIterator(0);
+	}
+
+	@Override
+	public ListIterator<Object> listIterator(int index) {
+		return view().listIterator(index);
+	}
+
+	@Override
+	public List<Object> subList(int fromIndex, int toIndex) {
+		return view().subList(fromIndex, toIndex);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o == this || view().equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return view().hashCode();
+	}
+
+	/**
+	 * Gets a list going through this list, for the iterators and sub lists.
+	 * 
+	 * @return the view
+	 */
+	private List<Object> view() {
+		return new AbstractList<Object>() {
+			@Override
+			public Object get(int index) {
+				return ObjectList.this.get(index);
+			}
+
+			@Override
+			public int size() {
+				return ObjectList.this.size();
+			}
+
+			@Override
+			public Object set(int index, Object element) {
+				return ObjectList.this.set(index, element);
+			}
+
+			@Override
+			public void add(int index, Object element) {
+				modCount++;
+				ObjectList.this.add(index, element);
+			}
+
+			@Override
+			public Object remove(int index) {
+				modCount++;
+				return ObjectList.this.remove(index);
+			}
+		};
 	}
 
 	public Object shrink() {
@@ -145,10 +453,10 @@ public class ObjectList extends ArrayList<Object> implements IObjectContainer {
 
 	public String toXml(String rootName, String rootElementName) {
 		if (rootName == null) {
-			rootName = name;
+			rootName = name();
 		}
 		if (rootElementName == null) {
-			rootElementName = name;
+			rootElementName = name();
 		}
 		return XmlUtils.toXml(this, rootName, rootElementName);
 	}
@@ -170,7 +478,7 @@ public class ObjectList extends ArrayList<Object> implements IObjectContainer {
 	}
 	@Override
 	public String name() {
-		return name;
+		return data.name;
 	}
 //	@Override
 //	public String toString(){
@@ -16,31 +16,82 @@
  */
 package org.paxml.core;
 
-import java.util.ArrayList;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.paxml.util.ReflectUtils;
 import org.paxml.util.XmlUtils;
 
 /**
  * The object tree which encloses object lists and non IObjectContainer objects.
  * 
+ * The entries are kept in a ContainerData that copies share until one of them
+ * changes, so copy() and putting a container into another are O(1), and only
+ * the changed levels are ever copied. Reading never changes a tree, and trees
+ * that are no longer changed can be read by many threads. The tree extends
+ * LinkedHashMap for its type only: the java 8 functional map methods, like
+ * forEach() and compute(), are not supported.
+ * 
  * @author Xuetao Niu
  * 
  */
 public class ObjectTree extends LinkedHashMap<String, Object> implements IObjectContainer {
 
-	private String id;
-	private String name;
+	/**
+	 * The shareable content of a tree.
+	 */
+	static final class Data extends ContainerData {
+		private final Class<? extends ObjectTree> type;
+		private final String name;
+		private final LinkedHashMap<String, Object> map;
+		private final Set<String> xmlAttributes;
+
+		private Data(Class<? extends ObjectTree> type, String name, LinkedHashMap<String, Object> map,
+				Set<String> xmlAttributes) {
+			this.type = type;
+			this.name = name;
+			this.map = map;
+			this.xmlAttributes = xmlAttributes;
+		}
 
-	private final Set<String> xmlAttributes = new LinkedHashSet<String>(0);
+		@Override
+		Data share() {
+			shared = true;
+			Data data = new Data(type, name, map, xmlAttributes);
+			data.shared = true;
+			return data;
+		}
 
-	private final List<Object> list = new ArrayList<Object>();
+		@Override
+		Data unshare() {
+			LinkedHashMap<String, Object> newMap = new LinkedHashMap<String, Object>(map);
+			for (Object value : newMap.values()) {
+				markShared(value);
+			}
+			return new Data(type, name, newMap, new LinkedHashSet<String>(xmlAttributes));
+		}
+
+		@Override
+		ObjectTree newContainer() {
+			ObjectTree tree = type == ObjectTree.class ? new ObjectTree(null) : ReflectUtils.createObject(type);
+			tree.data = this;
+			return tree;
+		}
+	}
+
+	private String id;
+	private Data data;
+	private int changes;
+	IObjectContainer parent;
+	private final ContainerData.Children children = new ContainerData.Children();
 
 	/**
 	 * Default constructor.
@@ -61,13 +112,62 @@ public class ObjectTree extends LinkedHashMap<String, Object> implements IObject
 	public ObjectTree(String name, final Map<?, ?> map) {
 
 		super();
-		this.name = name;
+		data = new Data(getClass(), name, new LinkedHashMap<String, Object>(), new LinkedHashSet<String>(0));
 		if (map != null) {
 			addValues(map);
 		}
 
 	}
 
+	/**
+	 * Makes this tree changeable, copying the shared levels from the root of
+	 * its parents down to it. Called before every change of the tree or of a
+	 * container inside it.
+	 */
+	void writable() {
+		changes++;
+		if (parent != null) {
+			ContainerData.writable(parent);
+		}
+		if (data.shared) {
+			Data old = data;
+			data = old.unshare();
+			if (parent != null) {
+				ContainerData.replaced(parent, this, old, data);
+			}
+		}
+	}
+
+	void replaced(IObjectContainer child, ContainerData old, ContainerData now) {
+		for (Map.Entry<String, Object> entry : data.map.entrySet()) {
+			if (entry.getValue() == old) {
+				entry.setValue(now);
+				children.replaced(old, now);
+				return;
+			}
+		}
+		// no longer in this tree
+		ContainerData.setParent(child, null);
+	}
+
+	Data share() {
+		return data.share();
+	}
+
+	/**
+	 * Gets the number of changes made to this tree and the containers inside
+	 * it, since it was created.
+	 * 
+	 * @return the count
+	 */
+	int getChanges() {
+		return changes;
+	}
+
+	private Object toValue(Object stored) {
+		return stored instanceof ContainerData ? children.get(this, (ContainerData) stored) : stored;
+	}
+
 	public Object shrink() {
 		if (size() <= 0) {
 			return null;
@@ -91,88 +191,363 @@ public class ObjectTree extends LinkedHashMap<String, Object> implements IObject
 
 	@Override
 	public void addValue(String key, Object value) {
-		list.add(value);
 		Object existing = get(key);
 		if (existing == null) {
-			// put will do the copying work, if copy-able
-			put(key, value);
-			// getting a copy of it, if copied
-			Object v = get(key);
-			if (v instanceof ObjectList) {
-				((ObjectList) v)._dynamic = false;
-			}
-		} else if (existing instanceof ObjectList) {
-			ObjectList existingList = ((ObjectList) existing);
-			if (existingList._dynamic) {
-				ObjectList list = (ObjectList) existing;
-				list.add(value);
-			} else {
-				ObjectList list = new ObjectList(key, true, existing, value);
-				put(key, list);
+			Object stored = ContainerData.toStored(value);
+			if (stored instanceof ObjectList.Data) {
+				((ObjectList.Data) stored).dynamic = false;
 			}
-
+			writable();
+			children.release(data.map.put(key, stored));
+		} else if (existing instanceof ObjectList && ((ObjectList) existing).isDynamic()) {
+			((ObjectList) existing).add(value);
 		} else {
 			ObjectList list = new ObjectList(key, true, existing, value);
 			put(key, list);
 		}
 	}
 
-	private Object checkToCopy(Object value) {
-		if (value instanceof IObjectContainer) {
-			value = ((IObjectContainer) value).copy();
-		}
-		return value;
+	@Override
+	public int size() {
+		return data.map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return data.map.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return data.map.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return values().contains(value);
+	}
+
+	@Override
+	public Object get(Object key) {
+		return toValue(data.map.get(key));
 	}
 
 	@Override
 	public Object put(String key, Object value) {
-		list.add(value);
-		return super.put(key, checkToCopy(value));
+		Object stored = ContainerData.toStored(value);
+		writable();
+		return children.release(data.map.put(key, stored));
 	}
 
 	@Override
 	public void putAll(Map<? extends String, ? extends Object> m) {
-		Map<String, Object> map = new LinkedHashMap<String, Object>();
 		for (Map.Entry<? extends String, ? extends Object> entry : m.entrySet()) {
-			map.put(entry.getKey(), checkToCopy(entry.getValue()));
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public Object remove(Object key) {
+		if (!data.map.containsKey(key)) {
+			return null;
+		}
+		writable();
+		return children.release(data.map.remove(key));
+	}
+
+	@Override
+	public void clear() {
+		if (data.map.isEmpty()) {
+			return;
+		}
+		writable();
+		for (Object stored : data.map.values()) {
+			children.release(stored);
+		}
+		data.map.clear();
+	}
+
+	public Object getOrDefault(Object key, Object defaultValue) {
+		return containsKey(key) ? get(key) : defaultValue;
+	}
+
+	public Object putIfAbsent(String key, Object value) {
+		Object existing = get(key);
+		return existing == null ? put(key, value) : existing;
+	}
+
+	public boolean remove(Object key, Object value) {
+		if (containsKey(key) && eq(get(key), value)) {
+			remove(key);
+			return true;
+		}
+		return false;
+	}
+
+	public boolean replace(String key, Object oldValue, Object newValue) {
+		if (containsKey(key) && eq(get(key), oldValue)) {
+			put(key, newValue);
+			return true;
+		}
+		return false;
+	}
+
+	public Object replace(String key, Object value) {
+		return containsKey(key) ? put(key, value) : null;
+	}
+
+	private static boolean eq(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new TreeIterator<String>() {
+					public String next() {
+						return nextEntry().getKey();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return ObjectTree.this.size();
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+
+			@Override
+			public boolean remove(Object o) {
+				if (containsKey(o)) {
+					ObjectTree.this.remove(o);
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			public void clear() {
+				ObjectTree.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public Collection<Object> values() {
+		return new AbstractCollection<Object>() {
+			@Override
+			public Iterator<Object> iterator() {
+				return new TreeIterator<Object>() {
+					public Object next() {
+						return nextEntry().getValue();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return ObjectTree.this.size();
+			}
+
+			@Override
+			public void clear() {
+				ObjectTree.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		return new AbstractSet<Map.Entry<String, Object>>() {
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				return new TreeIterator<Map.Entry<String, Object>>() {
+					public Map.Entry<String, Object> next() {
+						return nextEntry();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return ObjectTree.this.size();
+			}
+
+			@Override
+			public void clear() {
+				ObjectTree.this.clear();
+			}
+		};
+	}
+
+	/**
+	 * An entry whose value is read from and written to the tree.
+	 */
+	private class TreeEntry implements Map.Entry<String, Object> {
+		private final String key;
+		private Object stored;
+
+		private TreeEntry(String key, Object stored) {
+			this.key = key;
+			this.stored = stored;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public Object getValue() {
+			if (stored instanceof ContainerData) {
+				// follow the copy the tree made of it since, if any
+				Object now = data.map.get(key);
+				if (now instanceof ContainerData) {
+					stored = now;
+				}
+			}
+			return toValue(stored);
+		}
+
+		public Object setValue(Object value) {
+			Object old = put(key, value);
+			stored = data.map.get(key);
+			return old;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			return eq(key, e.getKey()) && eq(getValue(), e.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			Object value = getValue();
+			return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return key + "=" + getValue();
+		}
+	}
+
+	/**
+	 * Iterates the entries the tree has when the iteration starts. Removing
+	 * goes through the tree, so it copies shared levels first.
+	 */
+	private abstract class TreeIterator<T> implements Iterator<T> {
+		private final Data iterated = data;
+		private final Iterator<Map.Entry<String, Object>> it = iterated.map.entrySet().iterator();
+		private TreeEntry current;
+
+		public boolean hasNext() {
+			return it.hasNext();
+		}
+
+		TreeEntry nextEntry() {
+			Map.Entry<String, Object> entry = it.next();
+			current = new TreeEntry(entry.getKey(), entry.getValue());
+			return current;
+		}
+
+		public void remove() {
+			if (current == null) {
+				throw new IllegalStateException();
+			}
+			writable();
+			if (data == iterated) {
+				it.remove();
+				children.release(current.stored);
+			} else {
+				ObjectTree.this.remove(current.key);
+			}
+			current = null;
 		}
-		super.putAll(m);
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Makes a copy of the current tree in O(1), sharing the entries until
+	 * either tree changes.
+	 * 
+	 * @return the copy
 	 */
 	@Override
 	public ObjectTree copy() {
 		ObjectTree newTree = emptyCopy();
-		newTree.xmlAttributes.addAll(xmlAttributes);
-		for (Map.Entry<String, Object> entry : entrySet()) {
-			Object item = entry.getValue();
-			if (item instanceof IObjectContainer) {
-				item = ((IObjectContainer) item).copy();
-			}
-			newTree.put(entry.getKey(), item);
-		}
+		newTree.data = share();
 		return newTree;
 	}
 
+	@Override
+	public Object clone() {
+		return copy();
+	}
+
 	protected ObjectTree emptyCopy() {
-		return new ObjectTree(name);
+		return new ObjectTree(name());
 	}
-	public boolean isXmlAttribute(String propName){
-		return xmlAttributes.contains(propName);
+
+	public boolean isXmlAttribute(String propName) {
+		return data.xmlAttributes.contains(propName);
 	}
-	public void addXmlAttributes(Collection<String> attrNames){
-		xmlAttributes.addAll(attrNames);
+
+	public void addXmlAttributes(Collection<String> attrNames) {
+		writable();
+		data.xmlAttributes.addAll(attrNames);
 	}
+
 	@Override
 	public List<Object> list() {
-		return Collections.unmodifiableList(list);
+		return new AbstractList<Object>() {
+			@Override
+			public Object get(int index) {
+				if (index < 0 || index >= size()) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+				}
+				Iterator<Object> it = iterator();
+				for (int i = 0; i < index; i++) {
+					it.next();
+				}
+				return it.next();
+			}
+
+			@Override
+			public int size() {
+				return ObjectTree.this.size();
+			}
+
+			@Override
+			public Iterator<Object> iterator() {
+				final Iterator<Object> it = values().iterator();
+				return new Iterator<Object>() {
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					public Object next() {
+						return it.next();
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
 	}
 
 	public String toXml(String rootName) {
 		if (rootName == null) {
-			rootName = name;
+			rootName = name();
 		}
 		return XmlUtils.toXml(this, rootName, null);
 	}
@@ -212,7 +587,7 @@ public class ObjectTree extends LinkedHashMap<String, Object> implements IObject
 
 	@Override
 	public String name() {
-		return name;
+		return data.name;
 	}
 		
 //	@Override
@@ -21,17 +21,24 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.axiom.om.OMElement;
+import org.apache.commons.jxpath.ClassFunctions;
+import org.apache.commons.jxpath.FunctionLibrary;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.paxml.annotation.Util;
+import org.paxml.el.IUtilFunctionsFactory;
 import org.paxml.launch.Paxml;
 import org.paxml.tag.AbstractPaxmlEntityFactory;
 import org.paxml.tag.ITagLibrary;
 import org.paxml.tag.InternalTagLibrary;
 import org.paxml.util.AxiomUtils;
+import org.paxml.util.ReflectUtils;
 
 /**
  * Parser for all paxml resources to convert them into paxml entities.
@@ -45,6 +52,10 @@ public class Parser {
 	private final EntityFactoryRegistry registry;
 	private final Paxml paxml;
 	private final LinkedList<ITagLibrary> tagLibraries = new LinkedList<ITagLibrary>();
+	private volatile EntityCache entityCache;
+	private volatile IEntityChangeDetector changeDetector = EntityChangeDetectors.getDefault();
+	private final Map<String, Class<? extends IUtilFunctionsFactory>> utilFunctionsFactories = new ConcurrentHashMap<String, Class<? extends IUtilFunctionsFactory>>();
+	private volatile FunctionLibrary xpathFunctions;
 	{
 		// add the default tag library
 		tagLibraries.add(InternalTagLibrary.INSTANCE);
@@ -84,6 +95,8 @@ public class Parser {
 		} else {
 			tagLibraries.addFirst(lib);
 		}
+		utilFunctionsFactories.clear();
+		xpathFunctions = null;
 	}
 
 	/**
@@ -108,12 +121,122 @@ public class Parser {
 				}
 			}
 		}
+		utilFunctionsFactories.clear();
+		xpathFunctions = null;
+	}
+
+	/**
+	 * Find the util functions factory with a name from the tag libraries. The
+	 * lookup result is cached until the tag libraries change.
+	 * 
+	 * @param name
+	 *            the util name
+	 * @return the factory class, null if no tag library has it.
+	 */
+	public Class<? extends IUtilFunctionsFactory> getUtilFunctionsFactory(String name) {
+		Class<? extends IUtilFunctionsFactory> clazz = utilFunctionsFactories.get(name);
+		if (clazz == null) {
+			clazz = IUtilFunctionsFactory.class;
+			for (ITagLibrary lib : tagLibraries) {
+				Class<? extends IUtilFunctionsFactory> found = lib.getUtilFunctionsFactory(name);
+				if (found != null) {
+					clazz = found;
+					break;
+				}
+			}
+			utilFunctionsFactories.put(name, clazz);
+		}
+		// the interface itself marks a known miss
+		return IUtilFunctionsFactory.class.equals(clazz) ? null : clazz;
 	}
 
 	public List<ITagLibrary> getTagLibraries() {
 		return tagLibraries;
 	}
 
+	public EntityCache getEntityCache() {
+		return entityCache;
+	}
+
+	/**
+	 * Set the cache shared with other parsers. Entities parsed by this parser
+	 * will be put into it, and entities already in it will be used instead of
+	 * parsing again.
+	 * 
+	 * @param entityCache
+	 *            the shared cache, null to not share.
+	 */
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	public boolean isCheckModified() {
+		return changeDetector != EntityChangeDetectors.FROZEN;
+	}
+
+	/**
+	 * Set whether to check if a cached entity is modified before using it.
+	 * 
+	 * @param checkModified
+	 *            true to reparse modified resources, false to always use the
+	 *            cached entities without checking the files.
+	 */
+	public void setCheckModified(boolean checkModified) {
+		this.changeDetector = checkModified ? EntityChangeDetectors.ALWAYS : EntityChangeDetectors.FROZEN;
+	}
+
+	public IEntityChangeDetector getChangeDetector() {
+		return changeDetector;
+	}
+
+	/**
+	 * Set how to find out if a cached entity is modified before using it.
+	 * 
+	 * @param changeDetector
+	 *            the change detector, null to use the default one given by
+	 *            system property.
+	 */
+	public void setChangeDetector(IEntityChangeDetector changeDetector) {
+		this.changeDetector = changeDetector == null ? EntityChangeDetectors.getDefault() : changeDetector;
+	}
+
+	/**
+	 * Get the xpath functions from all tag libraries. The function library is
+	 * built once and cached until the tag libraries change.
+	 * 
+	 * @param context
+	 *            the context used to ask the util functions factories for
+	 *            their xpath functions classes
+	 * @return the function library, never null
+	 */
+	public FunctionLibrary getXpathFunctions(Context context) {
+		FunctionLibrary funcLib = xpathFunctions;
+		if (funcLib != null) {
+			return funcLib;
+		}
+		funcLib = new FunctionLibrary();
+		for (ITagLibrary lib : tagLibraries) {
+			for (String name : lib.getUtilFunctionsFactoryNames()) {
+				Class<? extends IUtilFunctionsFactory> clazz = lib.getUtilFunctionsFactory(name);
+				Class<?> xpathFunClass = ReflectUtils.createObject(clazz).getXpathUtilFunctions(context);
+				if (xpathFunClass == null) {
+					// skip this one
+					continue;
+				}
+				Util util = ReflectUtils.getAnnotation(clazz, Util.class);
+				if (util == null) {
+					throw new PaxmlRuntimeException("Internal error: util function factory is not annotated: " + clazz.getName());
+				}
+				funcLib.addFunctions(new ClassFunctions(xpathFunClass, util.value()));
+			}
+		}
+		// build the lookup cache of the library now, so that it is read only
+		// when shared by threads
+		funcLib.getUsedNamespaces();
+		xpathFunctions = funcLib;
+		return funcLib;
+	}
+
 	/**
 	 * Parse paxml resource to construct paxml entity.
 	 * 
@@ -135,8 +258,22 @@ public class Parser {
 			}
 		}
 
-		final IEntity cached;
-		if (forceRefresh || (cached = this.resourceLocator.getCachedPaxmlEntities().get(resource)) == null || cached.isModified()) {
+		final EntityCache sharedCache = entityCache;
+		final IEntityChangeDetector detector = changeDetector;
+		IEntity cached = null;
+		if (!forceRefresh) {
+			cached = this.resourceLocator.getCachedPaxmlEntities().get(resource);
+			if (cached != null && detector.isModified(cached)) {
+				cached = null;
+			}
+			if (cached == null && sharedCache != null) {
+				cached = sharedCache.get(resource, tagLibraries, resourceLocator, detector);
+				if (cached != null) {
+					resourceLocator.getCachedPaxmlEntities().put(resource, cached);
+				}
+			}
+		}
+		if (cached == null) {
 
 			if (resource.getSpringResource().exists()) {
 				InputStream in = null;
@@ -150,6 +287,9 @@ public class Parser {
 						root.close(false);
 					}
 					if (entity != null && entity.isCachable() && StringUtils.isNotBlank(resource.getName())) {
+						if (sharedCache != null) {
+							entity = sharedCache.put(resource, tagLibraries, resourceLocator, entity);
+						}
 						resourceLocator.getCachedPaxmlEntities().put(resource, entity);
 					}
 
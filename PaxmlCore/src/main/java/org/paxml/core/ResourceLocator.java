@@ -20,6 +20,8 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -46,6 +48,12 @@ public class ResourceLocator {
     private final Map<PaxmlResource, IEntity> cachedPaxmlEntities = new ConcurrentHashMap<PaxmlResource, IEntity>(
             0);
     private final Map<String, PaxmlResource> resources = new ConcurrentHashMap<String, PaxmlResource>();
+    /**
+     * Guards the changes of the resources and the building of their snapshot,
+     * so that a snapshot is never of older resources than the current ones.
+     */
+    private final Object resourceLock = new Object();
+    private volatile ResourceSet resourceSet;
 
     private Parser parser;
 
@@ -65,7 +73,10 @@ public class ResourceLocator {
     public ResourceLocator(final ResourceLocator parent) {
         if (parent != null) {
             cachedPaxmlEntities.putAll(parent.cachedPaxmlEntities);
-            resources.putAll(parent.resources);
+            synchronized (parent.resourceLock) {
+                resources.putAll(parent.resources);
+                resourceSet = parent.resourceSet;
+            }
             parser = parent.parser;
         }
     }
@@ -160,7 +171,27 @@ public class ResourceLocator {
     }
 
     public Map<String, PaxmlResource> getResourceMap() {
-        return resources;
+        return Collections.unmodifiableMap(resources);
+    }
+
+    /**
+     * Get an immutable snapshot of the added resources. Locators with the same
+     * resources give equal snapshots.
+     * 
+     * @return the snapshot, never null
+     */
+    public ResourceSet getResourceSet() {
+        ResourceSet set = resourceSet;
+        if (set == null) {
+            synchronized (resourceLock) {
+                set = resourceSet;
+                if (set == null) {
+                    set = new ResourceSet(resources.values());
+                    resourceSet = set;
+                }
+            }
+        }
+        return set;
     }
 
     public Set<String> getResourceNames() {
@@ -200,7 +231,10 @@ public class ResourceLocator {
      *            the resource
      */
     public void addResource(PaxmlResource resourceToAdd) {
-        resources.put(resourceToAdd.getName(), resourceToAdd);
+        synchronized (resourceLock) {
+            resources.put(resourceToAdd.getName(), resourceToAdd);
+            resourceSet = null;
+        }
     }
 
     /**
@@ -210,7 +244,10 @@ public class ResourceLocator {
      *            the resource
      */
     public void removeResource(PaxmlResource resourceToRemove) {
-        resources.remove(resourceToRemove.getName());
+        synchronized (resourceLock) {
+            resources.remove(resourceToRemove.getName());
+            resourceSet = null;
+        }
     }
 
     /**
@@ -253,4 +290,41 @@ public class ResourceLocator {
     public PaxmlResource getResource(String name) {
         return resources.get(name);
     }
+
+    /**
+     * Immutable set of paxml resources with a precomputed hash code.
+     * 
+     * @author Xuetao Niu
+     * 
+     */
+    public static final class ResourceSet {
+        private final Set<PaxmlResource> resources;
+        private final int hash;
+
+        private ResourceSet(Collection<PaxmlResource> resources) {
+            this.resources = Collections.unmodifiableSet(new HashSet<PaxmlResource>(resources));
+            this.hash = this.resources.hashCode();
+        }
+
+        public Set<PaxmlResource> getResources() {
+            return resources;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ResourceSet)) {
+                return false;
+            }
+            ResourceSet other = (ResourceSet) obj;
+            return hash == other.hash && resources.equals(other.resources);
+        }
+    }
 }
@@ -16,7 +16,8 @@
  */
 package org.paxml.el;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.paxml.core.Context;
 
@@ -27,7 +28,7 @@ import org.paxml.core.Context;
  * 
  */
 public class ConcatExpression extends AbstractExpression {
-    private final LinkedList<IExpression> parts = new LinkedList<IExpression>();
+    private final List<IExpression> parts = new ArrayList<IExpression>(1);
 
     /**
      * {@inheritDoc}
@@ -41,7 +42,7 @@ public class ConcatExpression extends AbstractExpression {
         if (size <= 0) {
             return null;
         } else if (size == 1) {
-            return parts.getFirst().evaluate(context);
+            return parts.get(0).evaluate(context);
         }
         StringBuilder sb = new StringBuilder();
         for (IExpression exp : parts) {
@@ -57,7 +58,22 @@ public class ConcatExpression extends AbstractExpression {
      *            the sub expression
      */
     public void addPart(IExpression exp) {
-        parts.addLast(exp);
+        parts.add(exp);
+    }
+
+    /**
+     * Check if the expression has no evaluations but only literal parts, so
+     * that it evaluates to the same value regardless of the context.
+     * 
+     * @return true if all parts are literals, false if not.
+     */
+    public boolean isLiteral() {
+        for (IExpression exp : parts) {
+            if (!(exp instanceof LiteralExpression)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -0,0 +1,148 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.el;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread safe cache of compiled expressions. When the cache is full,
+ * arbitrary entries are evicted to make room for new ones.
+ *
+ * @author Xuetao Niu
+ *
+ */
+public class ExpressionCache {
+
+	/**
+	 * The default max number of cached expressions.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	private final ConcurrentMap<String, IExpression> expressions = new ConcurrentHashMap<String, IExpression>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private volatile int maxSize;
+
+	/**
+	 * Construct with the default max size.
+	 */
+	public ExpressionCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Construct with a max size.
+	 *
+	 * @param maxSize
+	 *            the max number of cached expressions, 0 or less to disable
+	 *            caching.
+	 */
+	public ExpressionCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Get a cached expression.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the expression, null if not cached.
+	 */
+	public IExpression get(String key) {
+		IExpression exp = expressions.get(key);
+		if (exp == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return exp;
+	}
+
+	/**
+	 * Cache an expression.
+	 *
+	 * @param key
+	 *            the key
+	 * @param exp
+	 *            the expression
+	 * @return the expression that ends up cached, or the given one if caching
+	 *         is disabled.
+	 */
+	public IExpression put(String key, IExpression exp) {
+		final int max = maxSize;
+		if (max <= 0) {
+			return exp;
+		}
+		if (expressions.size() >= max) {
+			Iterator<String> it = expressions.keySet().iterator();
+			for (int toRemove = expressions.size() - max + 1; toRemove > 0 && it.hasNext(); toRemove--) {
+				it.next();
+				it.remove();
+			}
+		}
+		IExpression existing = expressions.putIfAbsent(key, exp);
+		return existing == null ? exp : existing;
+	}
+
+	/**
+	 * Remove all cached expressions and reset the counters.
+	 */
+	public void clear() {
+		expressions.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int getSize() {
+		return expressions.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Set the max size, and evict entries if there are more than that.
+	 *
+	 * @param maxSize
+	 *            the max number of cached expressions, 0 or less to disable
+	 *            caching.
+	 */
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		if (maxSize <= 0) {
+			expressions.clear();
+			return;
+		}
+		Iterator<String> it = expressions.keySet().iterator();
+		while (expressions.size() > maxSize && it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+	}
+}
@@ -28,10 +28,33 @@ import org.paxml.core.PaxmlRuntimeException;
  */
 public final class ExpressionFactory {
 
+    private static final ExpressionCache CACHE = new ExpressionCache();
+
     private ExpressionFactory() {
 
     }
 
+    /**
+     * Get the cache of compiled expressions, keyed by the expression string.
+     * 
+     * @return the cache, never null
+     */
+    public static ExpressionCache getCache() {
+        return CACHE;
+    }
+
+    /**
+     * Set the size of the parse caches of both the strict and non-strict jexl
+     * engines.
+     * 
+     * @param size
+     *            the max number of cached jexl scripts, 0 or less to disable
+     *            the jexl parse cache.
+     */
+    public static void setJexlCacheSize(int size) {
+        JexlExpression.setCacheSize(size);
+    }
+
     private static JexlExpression createJexlExpression(String exp, boolean strict) {
         exp = trimExp(exp);
         try {
@@ -49,13 +72,22 @@ public final class ExpressionFactory {
     }
 
     /**
-     * Construct an expression from a string.
+     * Construct an expression from a string. The compiled expression is cached
+     * and shared, so the returned object must not be modified.
      * 
      * @param exp
      *            the string expression
      * @return the expression object, never null
      */
     public static IExpression create(final String exp) {
+        IExpression cached = CACHE.get(exp);
+        if (cached == null) {
+            cached = CACHE.put(exp, compile(exp));
+        }
+        return cached;
+    }
+
+    private static IExpression compile(final String exp) {
         // comment off the following two lines in order to preserve spaces and
         // line breaks
         // exp = trimExp(exp);
@@ -21,7 +21,7 @@ import org.apache.commons.jexl2.JexlContext;
 import org.apache.commons.jexl2.JexlEngine;
 import org.paxml.core.Context;
 import org.paxml.core.PaxmlRuntimeException;
-import org.paxml.tag.ITagLibrary;
+import org.paxml.launch.Paxml;
 import org.paxml.util.ReflectUtils;
 
 /**
@@ -40,6 +40,18 @@ public class JexlExpression extends AbstractExpression {
     private final Expression exp;
     private final boolean strict;
 
+    /**
+     * Set the parse cache size of both the strict and non-strict jexl engines.
+     * 
+     * @param size
+     *            the max number of cached jexl scripts, 0 or less to disable
+     *            the cache.
+     */
+    static void setCacheSize(int size) {
+        JEXL_ENGINE_STRICT.setCache(size);
+        JEXL_ENGINE_NON_STRICT.setCache(size);
+    }
+
     /**
      * Construct from string.
      * 
@@ -56,7 +68,7 @@ public class JexlExpression extends AbstractExpression {
      * {@inheritDoc}
      */
     public Object evaluate(Context context) {
-        return exp.evaluate(convertContext(context));
+        return exp.evaluate(getJexlContext(context));
     }
 
     /**
@@ -66,50 +78,85 @@ public class JexlExpression extends AbstractExpression {
         return exp.getExpression();
     }
 
-    private JexlContext convertContext(final Context context) {
-        return new JexlContext() {
-
-            public Object get(String name) {
-
-                Object obj = context.getConst(name, true);
+    private JexlContext getJexlContext(final Context context) {
+        final AdapterKey key = strict ? AdapterKey.STRICT : AdapterKey.NON_STRICT;
+        ContextAdapter adapter = (ContextAdapter) context.getInternalObject(key, false);
+        if (adapter == null) {
+            adapter = new ContextAdapter(context, strict);
+            context.setInternalObject(key, adapter, false);
+        }
+        return adapter;
+    }
 
-                if (obj == null) {
-                    // check if it is a util function reference
-                    obj = getUtilFunctions(name, context);
-                    if (obj != null) {
-                        context.getRootContext().addConst(name, null, obj, true);
-                    }
+    /**
+     * Keys of the jexl adapters kept in each context.
+     */
+    private static enum AdapterKey {
+        STRICT, NON_STRICT
+    }
 
-                }
-                return obj;
+    /**
+     * The jexl view of a paxml context, reused by all expressions evaluated
+     * against the same context.
+     * 
+     * @author Xuetao Niu
+     * 
+     */
+    private static final class ContextAdapter implements JexlContext {
+        private final Context context;
+        private final boolean strict;
+        /**
+         * The name last found unresolvable by get(), so that the has() call
+         * following it does not search again.
+         */
+        private String unknown;
+
+        private ContextAdapter(Context context, boolean strict) {
+            this.context = context;
+            this.strict = strict;
+        }
 
+        public Object get(String name) {
+            final Context holder = context.findConstContext(name);
+            if (holder != null) {
+                unknown = null;
+                return holder.getConst(name, false);
             }
-
-            public boolean has(String name) {
-                if (!context.hasConstId(name, true)) {
-                    if(strict){
-                        throw new PaxmlRuntimeException("Unknown const name: " + name);
-                    }
-                    return true;
-                }
-                return true;
+            // check if it is a util function reference
+            Object obj = getUtilFunctions(name, context);
+            if (obj != null) {
+                unknown = null;
+                context.getRootContext().addConst(name, null, obj, true);
+            } else {
+                unknown = name;
             }
+            return obj;
+        }
 
-            public void set(String name, Object value) {
-                throw new UnsupportedOperationException("Cannot change the reference of constant: " + name);
+        public boolean has(String name) {
+            final boolean known = !name.equals(unknown) && context.hasConstId(name, true);
+            if (!known && strict) {
+                throw new PaxmlRuntimeException("Unknown const name: " + name);
             }
+            return true;
+        }
+
+        public void set(String name, Object value) {
+            throw new UnsupportedOperationException("Cannot change the reference of constant: " + name);
+        }
 
-        };
     }
 
-    private Object getUtilFunctions(String name, Context context) {
-        for (ITagLibrary tagLib : context.getPaxml().getParser().getTagLibraries()) {
-            Class<? extends IUtilFunctionsFactory> clazz = tagLib.getUtilFunctionsFactory(name);
-            if (clazz != null) {
-                return ReflectUtils.createObject(clazz).getUtilFunctions(context);
-            }
+    private static Object getUtilFunctions(String name, Context context) {
+        final Paxml paxml = context.getPaxml();
+        if (paxml == null) {
+            return null;
+        }
+        Class<? extends IUtilFunctionsFactory> clazz = paxml.getParser().getUtilFunctionsFactory(name);
+        if (clazz == null) {
+            return null;
         }
-        return null;
+        return ReflectUtils.createObject(clazz).getUtilFunctions(context);
     }
 }
 
@@ -57,6 +57,7 @@ import org.paxml.core.PaxmlRuntimeException;
 import org.paxml.launch.Paxml;
 import org.paxml.security.Secret;
 import org.paxml.tag.AbstractTag;
+import org.paxml.util.DataSourceRegistry;
 import org.paxml.util.ReflectUtils;
 
 /**
@@ -122,6 +123,15 @@ public class UtilFunctions implements IUtilFunctionsFactory {
 		return map;
 	}
 
+	/**
+	 * Get the metrics of the data source pools.
+	 * 
+	 * @return the metrics keyed by pool name
+	 */
+	public static Map<String, Map<String, Object>> getDataSourceMetrics() {
+		return DataSourceRegistry.getDefault().getMetrics();
+	}
+
 	/**
 	 * Get the apache commons collection utils.
 	 * 
@@ -0,0 +1,38 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.launch;
+
+import java.util.Iterator;
+
+/**
+ * The scheduler which runs the launch points of a launch model.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public interface ILaunchScheduler {
+	/**
+	 * Run launch points and return after all of them have finished.
+	 * 
+	 * @param model
+	 *            the launch model
+	 * @param points
+	 *            the launch points to run, pulled only as the scheduler is
+	 *            ready to take more
+	 */
+	void run(LaunchModel model, Iterator<LaunchPoint> points);
+}
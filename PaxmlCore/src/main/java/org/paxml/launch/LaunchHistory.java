@@ -0,0 +1,232 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.launch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The durations of launch points measured in previous runs, persisted in a
+ * properties file so that the longest launch points can be started first.
+ * Only the most recently recorded entries are kept, up to a max number.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public class LaunchHistory {
+	/**
+	 * The system property to specify the history file with, no history is
+	 * kept if not given.
+	 */
+	public static final String FILE_PROPERTY = "paxml.launch.history";
+	/**
+	 * The system property to specify the max number of kept entries with.
+	 */
+	public static final String MAX_ENTRIES_PROPERTY = "paxml.launch.history.maxEntries";
+
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	private static final Log log = LogFactory.getLog(LaunchHistory.class);
+
+	private final File file;
+	private final int maxEntries;
+	/**
+	 * The values are the duration and the time of recording, comma separated.
+	 */
+	private final Properties durations = new Properties();
+
+	/**
+	 * Create with a history file, keeping the default max number of entries.
+	 * 
+	 * @param file
+	 *            the file to load from and save to, null to only keep the
+	 *            history in memory.
+	 */
+	public LaunchHistory(File file) {
+		this(file, DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Create with a history file.
+	 * 
+	 * @param file
+	 *            the file to load from and save to, null to only keep the
+	 *            history in memory.
+	 * @param maxEntries
+	 *            the max number of entries kept when saving
+	 */
+	public LaunchHistory(File file, int maxEntries) {
+		this.file = file;
+		this.maxEntries = Math.max(maxEntries, 1);
+		load();
+	}
+
+	/**
+	 * Create the history configured with the system properties.
+	 * 
+	 * @return the history, or null if no history file is given.
+	 */
+	public static LaunchHistory getConfigured() {
+		String path = System.getProperty(FILE_PROPERTY);
+		if (path == null || path.trim().length() == 0) {
+			return null;
+		}
+		return new LaunchHistory(new File(path.trim()), Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+	}
+
+	private void load() {
+		if (file == null || !file.isFile()) {
+			return;
+		}
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			durations.load(in);
+		} catch (IOException e) {
+			if (log.isWarnEnabled()) {
+				log.warn("Cannot load launch history from file: " + file.getAbsolutePath(), e);
+			}
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Save the history to the file, failures are only logged.
+	 */
+	public synchronized void save() {
+		prune();
+		if (file == null) {
+			return;
+		}
+		OutputStream out = null;
+		try {
+			File dir = file.getAbsoluteFile().getParentFile();
+			if (dir != null && !dir.isDirectory()) {
+				dir.mkdirs();
+			}
+			out = new FileOutputStream(file);
+			durations.store(out, "paxml launch point durations in ms");
+		} catch (IOException e) {
+			if (log.isWarnEnabled()) {
+				log.warn("Cannot save launch history to file: " + file.getAbsolutePath(), e);
+			}
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	/**
+	 * Drop the least recently recorded entries above the max number.
+	 */
+	private void prune() {
+		final int excess = durations.size() - maxEntries;
+		if (excess <= 0) {
+			return;
+		}
+		List<Map.Entry<Object, Object>> entries = new ArrayList<Map.Entry<Object, Object>>(durations.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<Object, Object>>() {
+			public int compare(Map.Entry<Object, Object> e1, Map.Entry<Object, Object> e2) {
+				final long t1 = parse(e1.getValue(), 1);
+				final long t2 = parse(e2.getValue(), 1);
+				return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+			}
+		});
+		for (int i = 0; i < excess; i++) {
+			durations.remove(entries.get(i).getKey());
+		}
+	}
+
+	/**
+	 * Parse a part of a history value.
+	 * 
+	 * @param value
+	 *            the value
+	 * @param index
+	 *            0 for the duration, 1 for the time of recording
+	 * @return the number, or -1 if missing or invalid.
+	 */
+	private static long parse(Object value, int index) {
+		if (value == null) {
+			return -1;
+		}
+		String[] parts = value.toString().split(",");
+		if (index >= parts.length) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(parts[index].trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Get the duration of a launch point measured in the previous run.
+	 * 
+	 * @param point
+	 *            the launch point
+	 * @return the duration in ms, or -1 if never measured.
+	 */
+	public long getDuration(LaunchPoint point) {
+		return parse(durations.getProperty(getKey(point)), 0);
+	}
+
+	/**
+	 * Record the duration of a finished launch point.
+	 * 
+	 * @param point
+	 *            the launch point
+	 */
+	public void record(LaunchPoint point) {
+		final long start = point.getStartMs();
+		final long stop = point.getStopMs();
+		if (start > 0 && stop >= start) {
+			durations.setProperty(getKey(point), (stop - start) + "," + stop);
+		}
+	}
+
+	private static String getKey(LaunchPoint point) {
+		StringBuilder sb = new StringBuilder();
+		if (point.getModel() != null && point.getModel().getName() != null) {
+			sb.append(point.getModel().getName());
+		}
+		sb.append(':').append(point.getGroup()).append(':').append(point.getResource().getPath());
+		if (point.getFactors() != null) {
+			// sorted to have a stable key
+			for (Map.Entry<Object, Object> entry : new TreeMap<Object, Object>(point.getFactors()).entrySet()) {
+				sb.append(':').append(entry.getKey()).append('=').append(entry.getValue());
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -16,18 +16,22 @@
  */
 package org.paxml.launch;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.paxml.core.EntityCache;
 import org.paxml.core.PaxmlResource;
 import org.paxml.tag.plan.PlanEntityFactory.Plan;
 import org.springframework.core.io.Resource;
@@ -53,6 +57,8 @@ public class LaunchModel {
 	private volatile long planProcessId;
 	private volatile int concurrency;
 	private Plan planEntity;
+	private volatile EntityCache entityCache = new EntityCache();
+	private volatile ILaunchScheduler scheduler;
 
 	public long getPlanProcessId() {
 		return planProcessId;
@@ -103,6 +109,104 @@ public class LaunchModel {
 		return set;
 	}
 
+	/**
+	 * Iterates the launch points, creating them on demand, so that the factor
+	 * combinations are not held in memory. The points of one settings share
+	 * the same global and local properties objects, only the factors are
+	 * created per point.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private class LaunchPointIterator implements Iterator<LaunchPoint> {
+		private final long executionId;
+		private final Iterator<Map.Entry<PaxmlResource, Settings>> settingsIt;
+		private PaxmlResource resource;
+		private Settings settings;
+		private Properties props;
+		private final List<String> factorNames = new ArrayList<String>();
+		private final List<List<Object>> factorValues = new ArrayList<List<Object>>();
+		private int[] indexes;
+		private boolean hasMore;
+
+		private LaunchPointIterator(long executionId) {
+			this.executionId = executionId;
+			List<Map.Entry<PaxmlResource, Settings>> all = new ArrayList<Map.Entry<PaxmlResource, Settings>>();
+			for (Map<PaxmlResource, List<Settings>> map : findLaunchPoints()) {
+				for (Map.Entry<PaxmlResource, List<Settings>> entry : map.entrySet()) {
+					for (Settings s : entry.getValue()) {
+						all.add(new AbstractMap.SimpleImmutableEntry<PaxmlResource, Settings>(entry.getKey(), s));
+					}
+				}
+			}
+			settingsIt = all.iterator();
+			nextSettings();
+		}
+
+		private void nextSettings() {
+			hasMore = settingsIt.hasNext();
+			if (!hasMore) {
+				return;
+			}
+			Map.Entry<PaxmlResource, Settings> entry = settingsIt.next();
+			resource = entry.getKey();
+			settings = entry.getValue();
+			props = createLaunchProperties(settings);
+			factorNames.clear();
+			factorValues.clear();
+			synchronized (settings.getFactors()) {
+				for (Map.Entry<String, Factor> factor : settings.getFactors().entrySet()) {
+					List<Object> values = new ArrayList<Object>(factor.getValue().getValues());
+					// a factor without values does not multiply the points
+					if (!values.isEmpty()) {
+						factorNames.add(factor.getKey());
+						factorValues.add(values);
+					}
+				}
+			}
+			indexes = new int[factorNames.size()];
+		}
+
+		@Override
+		public boolean hasNext() {
+			return hasMore;
+		}
+
+		@Override
+		public LaunchPoint next() {
+			if (!hasMore) {
+				throw new NoSuchElementException();
+			}
+			Properties factors = null;
+			if (indexes.length > 0) {
+				factors = new Properties();
+				for (int i = 0; i < indexes.length; i++) {
+					factors.put(factorNames.get(i), factorValues.get(i).get(indexes[i]));
+				}
+			}
+			LaunchPoint point = new LaunchPoint(LaunchModel.this, resource, settings.getGroup(), getGlobalSettings().getProperties(), props, factors,
+					generateNextPid(), executionId);
+
+			// move to the next combination, the first factor changes fastest
+			int i = 0;
+			for (; i < indexes.length; i++) {
+				if (++indexes[i] < factorValues.get(i).size()) {
+					break;
+				}
+				indexes[i] = 0;
+			}
+			if (i >= indexes.length) {
+				nextSettings();
+			}
+			return point;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
 	/**
 	 * Get launch points, where each point has a unique process id counting from
 	 * 1. The process id reflects the order of the point to be submitted into
@@ -115,32 +219,34 @@ public class LaunchModel {
 	 */
 	public synchronized List<LaunchPoint> getLaunchPoints(boolean forceRefresh, long executionId) {
 		if (forceRefresh || launchPoints == null) {
-			List<Map<PaxmlResource, List<Settings>>> points = findLaunchPoints();
-
-			launchPoints = new Vector<LaunchPoint>();
-			for (Map<PaxmlResource, List<Settings>> map : points) {
-				for (Map.Entry<PaxmlResource, List<Settings>> entry : map.entrySet()) {
-					for (Settings s : entry.getValue()) {
-						List<Properties> explodedFactors = explodeFactors(s);
-						if (explodedFactors == null || explodedFactors.size() <= 0) {
-							launchPoints.add(createLaunchPoint(entry.getKey(), s, null, generateNextPid(), executionId));
-						} else {
-							for (Properties factors : explodedFactors) {
-								launchPoints.add(createLaunchPoint(entry.getKey(), s, factors, generateNextPid(), executionId));
-							}
-						}
-					}
-				}
+			List<LaunchPoint> list = new Vector<LaunchPoint>();
+			for (Iterator<LaunchPoint> it = iterateLaunchPoints(executionId); it.hasNext();) {
+				list.add(it.next());
 			}
+			launchPoints = list;
 		}
 		return launchPoints;
 	}
 
+	/**
+	 * Iterate the launch points in the same order as getLaunchPoints(), but
+	 * create them only when iterated to, without caching them in the model.
+	 * The process ids are assigned as the points are created. The returned
+	 * iterator is not thread safe.
+	 * 
+	 * @param executionId
+	 *            the execution id
+	 * @return the iterator, never null
+	 */
+	public Iterator<LaunchPoint> iterateLaunchPoints(long executionId) {
+		return new LaunchPointIterator(executionId);
+	}
+
 	public static long generateNextPid() {
 		return PID.getAndIncrement();
 	}
 
-	private LaunchPoint createLaunchPoint(PaxmlResource res, Settings settings, Properties factors, long processId, long executionId) {
+	private Properties createLaunchProperties(Settings settings) {
 		Properties props = new Properties();
 
 		if (settings != null) {
@@ -152,8 +258,7 @@ public class LaunchModel {
 				}
 			}
 		}
-
-		return new LaunchPoint(this, res, settings.getGroup(), getGlobalSettings().getProperties(), props, factors, processId, executionId);
+		return props;
 	}
 
 	/**
@@ -165,6 +270,7 @@ public class LaunchModel {
 	 */
 	public Object execute(LaunchPoint point) {
 		Paxml paxml = new Paxml(point.getProcessId(), point.getExecutionId());
+		paxml.getParser().setEntityCache(entityCache);
 		paxml.addStaticConfig(config);
 		return paxml.execute(point.getResource().getName(), System.getProperties(), point.getEffectiveProperties(false));
 	}
@@ -248,66 +354,6 @@ public class LaunchModel {
 		return result;
 	}
 
-	private static List<Properties> explodeFactors(Settings settings) {
-
-		List<String> factorNames = new ArrayList<String>();
-
-		List<List<Object>> factors = new ArrayList<List<Object>>();
-		for (Map.Entry<String, Factor> entry : settings.getFactors().entrySet()) {
-			factors.add(new ArrayList<Object>(entry.getValue().getValues()));
-			factorNames.add(entry.getKey());
-		}
-
-		if (factorNames.size() < 1) {
-			return null;
-		} else {
-			List<List<Object>> exploded = new ArrayList<List<Object>>();
-			for (Object factor : factors.get(0)) {
-				List<Object> item = new ArrayList<Object>();
-				item.add(factor);
-				exploded.add(item);
-			}
-			// make more combinations
-			for (int i = 1; i < factors.size(); i++) {
-				List<Object> more = factors.get(i);
-				exploded = combineMoreFactors(exploded, more);
-			}
-
-			List<Properties> result = new ArrayList<Properties>();
-
-			for (int i = 0; i < exploded.size(); i++) {
-				List<Object> combination = exploded.get(i);
-				Properties map = new Properties();
-				for (int j = 0; j < factorNames.size(); j++) {
-					map.put(factorNames.get(j), combination.get(j));
-				}
-				result.add(map);
-			}
-
-			return result;
-		}
-	}
-
-	private static List<List<Object>> combineMoreFactors(List<List<Object>> list, List<Object> more) {
-		if (more.size() <= 0) {
-			return list;
-		}
-		List<List<Object>> result = new ArrayList<List<Object>>(0);
-
-		for (int i = 0; i < more.size(); i++) {
-			Object m = more.get(i);
-			for (int j = 0; j < list.size(); j++) {
-				List<Object> base = list.get(j);
-				List<Object> newList = new ArrayList<Object>(base);
-				newList.add(m);
-				result.add(newList);
-			}
-
-		}
-		return result;
-
-	}
-
 	public Resource getResource() {
 		return resource;
 	}
@@ -320,6 +366,36 @@ public class LaunchModel {
 		return config;
 	}
 
+	public EntityCache getEntityCache() {
+		return entityCache;
+	}
+
+	/**
+	 * Set the parsed entity cache shared by all launch points of this model.
+	 * Use EntityCache.getDefaultCache() to share across the whole jvm.
+	 * 
+	 * @param entityCache
+	 *            the cache, null to parse per launch point.
+	 */
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	public ILaunchScheduler getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Set the scheduler to run the launch points with.
+	 * 
+	 * @param scheduler
+	 *            the scheduler, null to use a LaunchScheduler with the model
+	 *            concurrency and the default launch history.
+	 */
+	public void setScheduler(ILaunchScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
 	public Plan getPlanEntity() {
 		return planEntity;
 	}
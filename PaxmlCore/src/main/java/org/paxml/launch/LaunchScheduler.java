@@ -0,0 +1,280 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.launch;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.paxml.core.Context;
+import org.paxml.core.PaxmlRuntimeException;
+
+/**
+ * The default launch scheduler. A fixed number of workers take launch points
+ * from one shared queue, so no worker stays idle while there are points left
+ * to run. The queue is ordered by the durations measured in previous runs,
+ * longest first, and the points of a group are not run by more workers than
+ * the concurrency of the group settings. Without history, launch points are
+ * pulled from the source only when the queue has room; with history, all of
+ * them are pulled at once, so that a long launch point late in the source is
+ * still started first.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public class LaunchScheduler implements ILaunchScheduler {
+
+	private static final Log log = LogFactory.getLog(LaunchScheduler.class);
+
+	/**
+	 * The default number of queued launch points per worker.
+	 */
+	public static final int DEFAULT_QUEUE_SIZE_PER_WORKER = 4;
+
+	private final int concurrency;
+	private final int maxQueueSize;
+	private final LaunchHistory history;
+
+	/**
+	 * Queued launch point with its expected duration.
+	 */
+	private static class Queued {
+		private final LaunchPoint point;
+		private final long expectedMs;
+
+		private Queued(LaunchPoint point, long expectedMs) {
+			this.point = point;
+			this.expectedMs = expectedMs;
+		}
+	}
+
+	/**
+	 * The state of one run.
+	 */
+	private class Run implements Runnable {
+		private final LaunchModel model;
+		private final Iterator<LaunchPoint> source;
+		private final LinkedList<Queued> queue = new LinkedList<Queued>();
+		private final Map<String, Integer> running = new HashMap<String, Integer>();
+		private boolean sourceFailed;
+
+		private Run(LaunchModel model, Iterator<LaunchPoint> source) {
+			this.model = model;
+			this.source = source;
+		}
+
+		@Override
+		public void run() {
+			LaunchPoint point;
+			while ((point = take()) != null) {
+				try {
+					execute(point);
+				} finally {
+					finish(point);
+				}
+			}
+		}
+
+		private synchronized LaunchPoint take() {
+			while (true) {
+				while ((history != null || queue.size() < maxQueueSize) && hasNextInSource()) {
+					try {
+						enqueue(source.next());
+					} catch (RuntimeException e) {
+						if (log.isErrorEnabled()) {
+							log.error("Cannot create launch point, skipping it: " + findMessage(e), e);
+						}
+					}
+				}
+				for (ListIterator<Queued> it = queue.listIterator(); it.hasNext();) {
+					LaunchPoint point = it.next().point;
+					Integer count = running.get(point.getGroup());
+					int limit = getGroupConcurrency(point.getGroup());
+					if (limit <= 0 || count == null || count < limit) {
+						it.remove();
+						running.put(point.getGroup(), count == null ? 1 : count + 1);
+						return point;
+					}
+				}
+				if (queue.isEmpty()) {
+					return null;
+				}
+				// all queued points are held back by their group limits
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return null;
+				}
+			}
+		}
+
+		private boolean hasNextInSource() {
+			if (sourceFailed) {
+				return false;
+			}
+			try {
+				return source.hasNext();
+			} catch (RuntimeException e) {
+				sourceFailed = true;
+				if (log.isErrorEnabled()) {
+					log.error("Cannot read more launch points, running the ones read so far: " + findMessage(e), e);
+				}
+				return false;
+			}
+		}
+
+		private void enqueue(LaunchPoint point) {
+			final long expectedMs = history == null ? -1 : history.getDuration(point);
+			ListIterator<Queued> it = queue.listIterator();
+			while (it.hasNext()) {
+				if (it.next().expectedMs < expectedMs) {
+					it.previous();
+					break;
+				}
+			}
+			it.add(new Queued(point, expectedMs));
+		}
+
+		private synchronized void finish(LaunchPoint point) {
+			Integer count = running.get(point.getGroup());
+			running.put(point.getGroup(), count - 1);
+			if (history != null) {
+				history.record(point);
+			}
+			notifyAll();
+		}
+
+		private int getGroupConcurrency(String name) {
+			Group group = model == null ? null : model.getGroups().get(name);
+			return group == null ? 0 : group.getSettings().getConcurrency();
+		}
+	}
+
+	/**
+	 * Construct with no history.
+	 * 
+	 * @param concurrency
+	 *            the number of workers
+	 */
+	public LaunchScheduler(int concurrency) {
+		this(concurrency, concurrency * DEFAULT_QUEUE_SIZE_PER_WORKER, null);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param concurrency
+	 *            the number of workers
+	 * @param maxQueueSize
+	 *            the max number of launch points pulled from the source but
+	 *            not started yet, only effective without history
+	 * @param history
+	 *            the history to order the launch points with and to record
+	 *            the durations into, null to run in the source order.
+	 */
+	public LaunchScheduler(int concurrency, int maxQueueSize, LaunchHistory history) {
+		if (concurrency <= 0) {
+			throw new PaxmlRuntimeException("Concurrency should be positive: " + concurrency);
+		}
+		this.concurrency = concurrency;
+		this.maxQueueSize = Math.max(maxQueueSize, 1);
+		this.history = history;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void run(LaunchModel model, Iterator<LaunchPoint> points) {
+		if (!points.hasNext()) {
+			return;
+		}
+		final Run run = new Run(model, points);
+		ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			pool.execute(run);
+		}
+		try {
+			pool.shutdown();
+			// wait forever in a loop
+			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				if (log.isDebugEnabled()) {
+					log.debug("Waiting for all executors to finish...");
+				}
+			}
+
+		} catch (InterruptedException e) {
+			throw new PaxmlRuntimeException("Cannot wait for all executors to finish", e);
+		} finally {
+			pool.shutdownNow();
+			if (history != null) {
+				history.save();
+			}
+		}
+	}
+
+	private static void execute(LaunchPoint point) {
+		try {
+			Context.cleanCurrentThreadContext();
+
+			logExecution(point, true);
+
+			point.execute();
+		} catch (Throwable t) {
+			if (log.isErrorEnabled()) {
+				log.error(findMessage(t), t);
+			}
+		} finally {
+			logExecution(point, false);
+		}
+	}
+
+	private static void logExecution(LaunchPoint point, boolean trueStartFalseEnd) {
+		if (log.isInfoEnabled()) {
+			log.info((trueStartFalseEnd ? "Starting" : "Finished") + " Paxml execution: " + point.getResource().getPath());
+		}
+	}
+
+	private static String findMessage(Throwable t) {
+		String msg = t.getMessage();
+		for (; t != null && StringUtils.isBlank(msg); t = t.getCause()) {
+			msg = t.getMessage();
+		}
+		return msg;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	public LaunchHistory getHistory() {
+		return history;
+	}
+}
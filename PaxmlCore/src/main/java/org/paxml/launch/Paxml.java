@@ -81,6 +81,26 @@ public class Paxml {
 		this.sessionId = sessionId;
 	}
 
+	/**
+	 * Construct a runtime sharing the parser, the parsed entities and the
+	 * listeners of another one, for a separate execution.
+	 * 
+	 * @param shared
+	 *            the runtime to share with
+	 * @param processId
+	 *            the processId
+	 * @param sessionId
+	 *            the execution id
+	 */
+	public Paxml(final Paxml shared, long processId, long sessionId) {
+		parser = shared.parser;
+		this.processId = processId;
+		this.sessionId = sessionId;
+		paxmlExecutionListeners = shared.paxmlExecutionListeners;
+		entityExecutionListeners = shared.entityExecutionListeners;
+		tagExecutionListeners = shared.tagExecutionListeners;
+	}
+
 	/**
 	 * Add a static config to this.
 	 * 
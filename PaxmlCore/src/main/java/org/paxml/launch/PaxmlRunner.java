@@ -16,14 +16,10 @@
  */
 package org.paxml.launch;
 
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.paxml.core.Context;
@@ -33,6 +29,7 @@ import org.paxml.core.PaxmlRuntimeException;
 import org.paxml.tag.ITagLibrary;
 import org.paxml.tag.plan.PlanEntityFactory.Plan;
 import org.paxml.tag.plan.PlanTagLibrary;
+import org.paxml.util.DataSourceRegistry;
 import org.paxml.util.PaxmlUtils;
 
 /**
@@ -69,6 +66,16 @@ public class PaxmlRunner {
 	 * 
 	 */
 	public static Object run(String paxmlOrPlanFileName, Map<String, Object> params, StaticConfig config) {
+		// the data source pools live as long as runs use them
+		DataSourceRegistry.getDefault().startRun();
+		try {
+			return runResource(paxmlOrPlanFileName, params, config);
+		} finally {
+			DataSourceRegistry.getDefault().endRun();
+		}
+	}
+
+	private static Object runResource(String paxmlOrPlanFileName, Map<String, Object> params, StaticConfig config) {
 
 		Context.cleanCurrentThreadContext();
 
@@ -135,68 +142,33 @@ public class PaxmlRunner {
 	}
 
 	/**
-	 * Run the computed launch model with thread pool. It will run with default
-	 * 4 threads if not specifically specified in the launch model.
+	 * Run the computed launch model with the scheduler of the model. If the
+	 * model has no scheduler, a LaunchScheduler is used with the model
+	 * concurrency, or default 4 threads if not specified in the launch model.
 	 * 
 	 * @param model
 	 *            the model containing the launch points
 	 */
 	public static void run(LaunchModel model, long executionId) {
 
-		List<LaunchPoint> points = model.getLaunchPoints(false, executionId);
-		if (log.isInfoEnabled()) {
-			log.info("Found " + points.size() + " Paxml files to execute based on plan file: " + model.getPlanEntity().getResource().getPath());
-		}
-		if (points.isEmpty()) {
+		// the points are created as the scheduler takes them
+		Iterator<LaunchPoint> points = model.iterateLaunchPoints(executionId);
+		if (!points.hasNext()) {
+			if (log.isInfoEnabled()) {
+				log.info("Found no Paxml files to execute based on plan file: " + model.getPlanEntity().getResource().getPath());
+			}
 			return;
 		}
-		final int poolSize = model.getConcurrency() <= 0 ? Math.min(DEFAULT_CONCURRENCY, points.size()) : model.getConcurrency();
-		ExecutorService pool = Executors.newFixedThreadPool(poolSize);
-		for (final LaunchPoint point : points) {
-			pool.execute(new Runnable() {
-
-				@Override
-				public void run() {
-					try {
-						Context.cleanCurrentThreadContext();
-
-						logExecution(point.getResource(), true);
-
-						point.execute();
-					} catch (Throwable t) {
-						if (log.isErrorEnabled()) {
-							log.error(findMessage(t), t);
-						}
-					} finally {
-						logExecution(point.getResource(), false);
-					}
-				}
-
-			});
+		if (log.isInfoEnabled()) {
+			log.info("Starting Paxml files execution based on plan file: " + model.getPlanEntity().getResource().getPath());
 		}
-
-		try {
-			pool.shutdown();
-			// wait forever in a loop
-			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
-				if (log.isDebugEnabled()) {
-					log.debug("Waiting for all executors to finish...");
-				}
-			}
-
-		} catch (InterruptedException e) {
-			throw new PaxmlRuntimeException("Cannot wait for all executors to finish", e);
-		} finally {
-			pool.shutdownNow();
+		ILaunchScheduler scheduler = model.getScheduler();
+		if (scheduler == null) {
+			final int poolSize = model.getConcurrency() <= 0 ? DEFAULT_CONCURRENCY : model.getConcurrency();
+			scheduler = new LaunchScheduler(poolSize, poolSize * LaunchScheduler.DEFAULT_QUEUE_SIZE_PER_WORKER, LaunchHistory.getConfigured());
 		}
+		scheduler.run(model, points);
 
 	}
 
-	private static String findMessage(Throwable t) {
-		String msg = t.getMessage();
-		for (; t != null && StringUtils.isBlank(msg); t = t.getCause()) {
-
-		}
-		return msg;
-	}
 }
@@ -35,6 +35,7 @@ public class Settings {
     private final Properties properties = new Properties();
     private final Set<Matcher> groupMatchers = Collections.synchronizedSet(new LinkedHashSet<Matcher>());
     private final Set<Matcher> singleMatchers = Collections.synchronizedSet(new LinkedHashSet<Matcher>());
+    private volatile int concurrency;
     public Settings(String group){
         this.group=group;
     }
@@ -56,5 +57,17 @@ public class Settings {
 	public String getGroup() {
         return group;
     }
+    /**
+     * Get the max number of launch points of the group to run at the same
+     * time.
+     * 
+     * @return the max number, 0 or less for no limit
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
 
 }
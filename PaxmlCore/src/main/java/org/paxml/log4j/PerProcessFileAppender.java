@@ -16,21 +16,266 @@
  */
 package org.paxml.log4j;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.log4j.FileAppender;
+import org.apache.log4j.Layout;
+import org.apache.log4j.spi.ErrorCode;
+import org.apache.log4j.spi.Filter;
 import org.apache.log4j.spi.LoggingEvent;
 import org.paxml.core.Context;
 
+/**
+ * File appender that writes the events of each paxml process into a separate
+ * file next to the main log file. With the "async" option set, the events are
+ * formatted on the logging thread and written by a background thread, which
+ * flushes in batches and closes the process files that are idle or least
+ * recently used.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
 public class PerProcessFileAppender extends FileAppender {
+	/**
+	 * Wait for free room when the queue is full.
+	 */
+	public static final String BLOCK = "block";
+	/**
+	 * Drop the new event when the queue is full.
+	 */
+	public static final String DISCARD_NEW = "discardNew";
+	/**
+	 * Drop the oldest queued event when the queue is full.
+	 */
+	public static final String DISCARD_OLDEST = "discardOldest";
+
+	private static final int BATCH_SIZE = 512;
+
 	private boolean duplicate;
 	private final HashMap<String, FileAppender> appenders = new HashMap<String, FileAppender>();
 
+	private boolean async;
+	private int queueSize = 8192;
+	private String discardPolicy = BLOCK;
+	private int maxOpenFiles = 64;
+	private long idleTimeout = 60000;
+	private long flushInterval = 200;
+
+	private final ConcurrentLinkedQueue<Record> queue = new ConcurrentLinkedQueue<Record>();
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicLong discarded = new AtomicLong();
+	private volatile Thread writerThread;
+	private volatile boolean writerWaiting;
+	private volatile boolean stopping;
+
+	/**
+	 * A formatted event to write.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private static final class Record {
+		private final String file;
+		private final String text;
+
+		private Record(String file, String text) {
+			this.file = file;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * A file opened by the background writer.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private static final class OpenFile {
+		private final Writer writer;
+		private long lastUsed;
+		private boolean dirty;
+
+		private OpenFile(Writer writer) {
+			this.writer = writer;
+		}
+	}
+
+	/**
+	 * The background writer, the only thread touching the open files.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private final class AsyncWriter implements Runnable {
+		private final Set<String> created = new HashSet<String>();
+		private final Map<String, OpenFile> files = new LinkedHashMap<String, OpenFile>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, OpenFile> eldest) {
+				if (size() > maxOpenFiles) {
+					closeFile(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+
+		@Override
+		public void run() {
+			while (!stopping || !queue.isEmpty()) {
+				int count = 0;
+				Record record;
+				while (count < BATCH_SIZE && (record = queue.poll()) != null) {
+					queued.decrementAndGet();
+					write(record.file, record.text);
+					count++;
+				}
+				reportDiscarded();
+				flushAll();
+				if (count == 0) {
+					closeIdle();
+					writerWaiting = true;
+					if (queue.isEmpty() && !stopping) {
+						LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushInterval));
+					}
+					writerWaiting = false;
+				}
+			}
+			for (OpenFile file : files.values()) {
+				closeFile(file);
+			}
+			files.clear();
+		}
+
+		private void write(String fileName, String text) {
+			OpenFile file = files.get(fileName);
+			try {
+				if (file == null) {
+					// reopened files are always appended to
+					final boolean append = getAppend() || !created.add(fileName);
+					File f = new File(fileName);
+					if (f.getParentFile() != null) {
+						f.getParentFile().mkdirs();
+					}
+					FileOutputStream out = new FileOutputStream(f, append);
+					Writer writer = getEncoding() == null ? new OutputStreamWriter(out) : new OutputStreamWriter(out, getEncoding());
+					file = new OpenFile(new BufferedWriter(writer, Math.max(getBufferSize(), 8192)));
+					files.put(fileName, file);
+					if (!append && getLayout() != null && getLayout().getHeader() != null) {
+						file.writer.write(getLayout().getHeader());
+					}
+				}
+				file.writer.write(text);
+				file.dirty = true;
+				file.lastUsed = System.currentTimeMillis();
+			} catch (IOException e) {
+				errorHandler.error("Cannot write to log file: " + fileName, e, ErrorCode.WRITE_FAILURE);
+			}
+		}
+
+		private void reportDiscarded() {
+			final long count = discarded.getAndSet(0);
+			if (count > 0) {
+				write(getMainFileName(), "Discarded " + count + " log events because the log queue was full" + Layout.LINE_SEP);
+			}
+		}
+
+		private void flushAll() {
+			for (OpenFile file : files.values()) {
+				if (file.dirty) {
+					try {
+						file.writer.flush();
+					} catch (IOException e) {
+						errorHandler.error("Cannot flush log file", e, ErrorCode.FLUSH_FAILURE);
+					}
+					file.dirty = false;
+				}
+			}
+		}
+
+		private void closeIdle() {
+			final long now = System.currentTimeMillis();
+			for (Iterator<OpenFile> it = files.values().iterator(); it.hasNext();) {
+				OpenFile file = it.next();
+				if (now - file.lastUsed > idleTimeout) {
+					closeFile(file);
+					it.remove();
+				}
+			}
+		}
+
+		private void closeFile(OpenFile file) {
+			try {
+				file.writer.close();
+			} catch (IOException e) {
+				errorHandler.error("Cannot close log file", e, ErrorCode.CLOSE_FAILURE);
+			}
+		}
+	}
+
+	@Override
+	public void activateOptions() {
+		if (!async) {
+			super.activateOptions();
+			return;
+		}
+		// the files are opened by the background writer
+		Thread thread = new Thread(new AsyncWriter(), "paxml-log-writer-" + getName());
+		thread.setDaemon(true);
+		writerThread = thread;
+		thread.start();
+	}
+
+	/**
+	 * Without the async option, this is synchronized like any log4j appender.
+	 * With the async option, this only formats and queues the event without
+	 * locking.
+	 * 
+	 * @param event
+	 *            the event
+	 */
+	@Override
+	public void doAppend(LoggingEvent event) {
+		if (!async) {
+			super.doAppend(event);
+			return;
+		}
+		if (closed || !isAsSevereAsThreshold(event.getLevel())) {
+			return;
+		}
+		for (Filter f = getFirstFilter(); f != null; f = f.getNext()) {
+			final int decision = f.decide(event);
+			if (decision == Filter.DENY) {
+				return;
+			} else if (decision == Filter.ACCEPT) {
+				break;
+			}
+		}
+		append(event);
+	}
+
 	@Override
 	public void append(LoggingEvent event) {
+		if (async) {
+			appendAsync(event);
+			return;
+		}
 		Context context = Context.getCurrentContext();
 		if (context == null) {
 			super.append(event);
@@ -66,6 +311,69 @@ public class PerProcessFileAppender extends FileAppender {
 		}
 	}
 
+	private void appendAsync(LoggingEvent event) {
+		// format here because the layout reads the context of this thread
+		final String text = format(event);
+		Context context = Context.getCurrentContext();
+		final long pid = context == null ? 0 : context.getProcessId();
+		if (pid == 0 || duplicate) {
+			enqueue(new Record(getMainFileName(), text));
+		}
+		if (pid != 0) {
+			enqueue(new Record(getProcessFileName(pid), text));
+		}
+	}
+
+	private String format(LoggingEvent event) {
+		final Layout layout = getLayout();
+		final String formatted;
+		// the log4j layouts reuse one buffer, so they cannot format
+		// concurrently
+		synchronized (layout) {
+			formatted = layout.format(event);
+		}
+		String text = formatted;
+		if (layout.ignoresThrowable()) {
+			String[] lines = event.getThrowableStrRep();
+			if (lines != null) {
+				StringBuilder sb = new StringBuilder(text);
+				for (String line : lines) {
+					sb.append(line).append(Layout.LINE_SEP);
+				}
+				text = sb.toString();
+			}
+		}
+		return text;
+	}
+
+	private void enqueue(Record record) {
+		while (true) {
+			if (queued.incrementAndGet() <= queueSize) {
+				queue.offer(record);
+				if (writerWaiting) {
+					LockSupport.unpark(writerThread);
+				}
+				return;
+			}
+			queued.decrementAndGet();
+			if (DISCARD_NEW.equals(discardPolicy)) {
+				discarded.incrementAndGet();
+				return;
+			} else if (DISCARD_OLDEST.equals(discardPolicy)) {
+				if (queue.poll() != null) {
+					queued.decrementAndGet();
+					discarded.incrementAndGet();
+				}
+			} else {
+				if (stopping) {
+					return;
+				}
+				LockSupport.unpark(writerThread);
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+			}
+		}
+	}
+
 	@Override
 	public synchronized void close() {
 		super.close();
@@ -73,6 +381,21 @@ public class PerProcessFileAppender extends FileAppender {
 			appender.finalize();
 			appender.close();
 		}
+		final Thread thread = writerThread;
+		if (thread != null) {
+			stopping = true;
+			LockSupport.unpark(thread);
+			try {
+				thread.join(TimeUnit.SECONDS.toMillis(10));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			writerThread = null;
+		}
+	}
+
+	private String getMainFileName() {
+		return new File(getFile()).getAbsolutePath();
 	}
 
 	private String getProcessFileName(long pid) {
@@ -90,4 +413,68 @@ public class PerProcessFileAppender extends FileAppender {
 	public void setDuplicate(boolean duplicate) {
 		this.duplicate = duplicate;
 	}
-}
\ No newline at end of file
+
+	public boolean getAsync() {
+		return async;
+	}
+
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	public String getDiscardPolicy() {
+		return discardPolicy;
+	}
+
+	/**
+	 * Set what to do when the queue is full in async mode.
+	 * 
+	 * @param discardPolicy
+	 *            one of "block" (the default), "discardNew" and
+	 *            "discardOldest"
+	 */
+	public void setDiscardPolicy(String discardPolicy) {
+		this.discardPolicy = discardPolicy;
+	}
+
+	public int getMaxOpenFiles() {
+		return maxOpenFiles;
+	}
+
+	public void setMaxOpenFiles(int maxOpenFiles) {
+		this.maxOpenFiles = maxOpenFiles;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Get the number of events waiting to be written in async mode.
+	 * 
+	 * @return the number
+	 */
+	public int getQueuedCount() {
+		return queued.get();
+	}
+}
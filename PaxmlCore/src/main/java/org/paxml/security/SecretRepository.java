@@ -28,26 +28,57 @@ import org.paxml.util.CryptoUtils;
 
 public class SecretRepository {
 
-	private static final ConcurrentMap<String, String> masterKeys = new ConcurrentHashMap<String, String>();
+	/**
+	 * A master key kept encrypted in memory. It is decrypted at most once per
+	 * thread, and the clear value is only kept in that thread.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private static final class MasterKey {
+		private final String encrypted;
+		private final String user;
+		private final ThreadLocal<String> decrypted = new ThreadLocal<String>();
+
+		private MasterKey(String clear, String user) {
+			this.encrypted = CryptoUtils.base64Encode(CryptoUtils.encrypt(clear, user));
+			this.user = user;
+		}
+
+		private String getDecrypted() {
+			String clear = decrypted.get();
+			if (clear == null) {
+				clear = CryptoUtils.decrypt(CryptoUtils.base64Decode(encrypted), user);
+				decrypted.set(clear);
+			}
+			return clear;
+		}
+	}
+
+	private static final ConcurrentMap<String, MasterKey> masterKeys = new ConcurrentHashMap<String, MasterKey>();
 
 	public static String getCurrentUser() {
 		return "";
 	}
 
-	// TODO: make it not synchronized when supporting web user sessions
-	public synchronized static String getCurrentUserMasterKey() {
+	public static String getCurrentUserMasterKey() {
 		final String currentUser = getCurrentUser();
-		String key = masterKeys.get(currentUser);
+		MasterKey key = masterKeys.get(currentUser);
 		if (key != null) {
-			return CryptoUtils.decrypt(CryptoUtils.base64Decode(key), currentUser);
+			return key.getDecrypted();
 		}
-
-		key = askForCurrentUserMasterKey();
-		if (key != null) {			
-			masterKeys.put(currentUser, CryptoUtils.base64Encode(CryptoUtils.encrypt(key, currentUser)));
+		// only ask once even if many threads need the key at the same time
+		synchronized (SecretRepository.class) {
+			key = masterKeys.get(currentUser);
+			if (key != null) {
+				return key.getDecrypted();
+			}
+			String clear = askForCurrentUserMasterKey();
+			if (clear != null) {
+				masterKeys.put(currentUser, new MasterKey(clear, currentUser));
+			}
+			return clear;
 		}
-
-		return key;
 	}
 
 	public static String askForCurrentUserMasterKey() {
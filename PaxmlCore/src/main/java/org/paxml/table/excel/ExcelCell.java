@@ -59,34 +59,20 @@ public class ExcelCell extends AbstractCell<ExcelRow> {
 			if (obj == null) {
 				return;
 			}
-
-			if (obj instanceof Number) {
-				cell = getRow().getExcelRow().createCell(index, Cell.CELL_TYPE_NUMERIC);
-				cell.setCellValue(((Number) obj).doubleValue());
-			} else if (obj instanceof Boolean) {
-				cell = getRow().getExcelRow().createCell(index, Cell.CELL_TYPE_BOOLEAN);
-				cell.setCellValue(((Boolean) obj));
-			} else {
-				cell = getRow().getExcelRow().createCell(index, Cell.CELL_TYPE_STRING);
-				cell.setCellValue(((String) obj));
-			}
-
+			cell = getRow().getExcelRow().createCell(index);
+		}
+		if (obj == null) {
+			cell.setCellType(Cell.CELL_TYPE_BLANK);
+		} else if (obj instanceof Number) {
+			cell.setCellValue(((Number) obj).doubleValue());
+		} else if (obj instanceof Boolean) {
+			cell.setCellValue(((Boolean) obj));
+		} else if (obj instanceof java.util.Date) {
+			cell.setCellValue((java.util.Date) obj);
+		} else if (obj instanceof java.util.Calendar) {
+			cell.setCellValue((java.util.Calendar) obj);
 		} else {
-			if (obj == null) {
-				cell.setCellType(Cell.CELL_TYPE_BLANK);
-			} else if (obj instanceof Number) {
-				cell.setCellValue(((Number) obj).doubleValue());
-			} else if (obj instanceof Boolean) {
-				cell.setCellValue(((Boolean) obj));
-			} else if (obj instanceof java.util.Date) {
-				cell.setCellValue((java.util.Date) obj);
-			} else if (obj instanceof java.util.Calendar) {
-				cell.setCellValue((java.util.Calendar) obj);
-			} else if (obj instanceof java.sql.Date) {
-				cell.setCellValue(new java.util.Date(((java.sql.Date) obj).getTime()));
-			} else {
-				cell.setCellValue(((String) obj));
-			}
+			cell.setCellValue(obj.toString());
 		}
 	}
 
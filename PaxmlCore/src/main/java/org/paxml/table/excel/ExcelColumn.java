@@ -26,8 +26,7 @@ public class ExcelColumn extends TableColumn {
 	}
 
 	public static String getColumnName(int index) {
-		CellReference ref = new CellReference(-1, index);
-		return ref.getCellRefParts()[1];
+		return CellReference.convertNumToColString(index);
 	}
 
 	public static int getColumnIndex(String name) {
@@ -17,7 +17,12 @@
 package org.paxml.table.excel;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -29,6 +34,8 @@ import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.paxml.core.PaxmlRuntimeException;
 import org.paxml.util.Coerceable;
@@ -38,6 +45,9 @@ public class ExcelFile implements Coerceable {
 	private volatile Workbook workbook;
 	private volatile FormulaEvaluator evaluator;
 	private volatile File file;
+	private boolean opened;
+	private volatile int windowSize;
+	private boolean streamSaved;
 	
 	public ExcelFile(Object f) {
 
@@ -45,33 +55,109 @@ public class ExcelFile implements Coerceable {
 
 		if (f instanceof ExcelFile) {
 			ExcelFile ef = (ExcelFile) f;
+			ef.open();
 			workbook = ef.workbook;
 			evaluator = ef.evaluator;
 			file = ef.file;
+			windowSize = ef.windowSize;
+			opened = true;
 
 		} else {
+			// the workbook is loaded only when needed, see open()
 			this.file = f instanceof File ? (File) f : new File(f.toString());
+		}
+	}
 
-			if (log.isDebugEnabled()) {
-				log.debug("Opening excel file: " + file.getAbsolutePath());
-			}
-			try {
-				if (file.exists()) {
-
-					workbook = WorkbookFactory.create(file);
+	/**
+	 * Open a xlsx file for append only streaming write. Only the last rows
+	 * within the window are kept in memory, the rows before are flushed to
+	 * temp files, and can no longer be read or changed. If the file exists,
+	 * its content is kept and the new rows are appended after its last row.
+	 * 
+	 * @param f
+	 *            the file
+	 * @param windowSize
+	 *            the max number of rows per sheet kept in memory
+	 * @return the excel file
+	 */
+	public static ExcelFile forStreamingWrite(Object f, int windowSize) {
+		if (windowSize < 1) {
+			throw new PaxmlRuntimeException("Streaming window size should be positive, but is: " + windowSize);
+		}
+		ExcelFile ef = new ExcelFile(f);
+		if (!ef.isXlsx()) {
+			throw new PaxmlRuntimeException("Only xlsx files can be written in streaming mode: " + ef.file.getAbsolutePath());
+		}
+		ef.windowSize = windowSize;
+		return ef;
+	}
 
+	private synchronized void open() {
+		if (opened) {
+			return;
+		}
+		opened = true;
+		if (log.isDebugEnabled()) {
+			log.debug("Opening excel file: " + file.getAbsolutePath());
+		}
+		try {
+			if (windowSize > 0) {
+				XSSFWorkbook template;
+				if (file.exists()) {
+					InputStream in = new FileInputStream(file);
+					try {
+						template = new XSSFWorkbook(in);
+					} finally {
+						in.close();
+					}
 				} else {
-					workbook = file.getName().toLowerCase().endsWith(".xlsx") ? new XSSFWorkbook() : new HSSFWorkbook();
+					template = new XSSFWorkbook();
 				}
-				evaluator = workbook.getCreationHelper().createFormulaEvaluator();
-			} catch (Exception e) {
-				close();
-				throw new PaxmlRuntimeException("Cannot open excel file: " + file.getAbsolutePath(), e);
+				SXSSFWorkbook wb = new SXSSFWorkbook(template, windowSize);
+				wb.setCompressTempFiles(true);
+				workbook = wb;
+			} else if (file.exists()) {
+
+				workbook = WorkbookFactory.create(file);
+
+			} else {
+				workbook = isXlsx() ? new XSSFWorkbook() : new HSSFWorkbook();
 			}
+			evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+		} catch (Exception e) {
+			close();
+			throw new PaxmlRuntimeException("Cannot open excel file: " + file.getAbsolutePath(), e);
 		}
 	}
-	public Sheet getSheet(String sheet, boolean createIfNone) {
 
+	private boolean isXlsx() {
+		return file.getName().toLowerCase().endsWith(".xlsx");
+	}
+
+	/**
+	 * Open a sheet for streaming read, without loading the workbook.
+	 * 
+	 * @param sheet
+	 *            the sheet name or 1 based sheet index, blank for the first
+	 *            sheet.
+	 * @return the reader, or null if the file cannot be streamed, i.e. it is
+	 *         not an existing xlsx file, its workbook is already loaded, or the
+	 *         sheet cannot be found without the workbook.
+	 */
+	public XlsxSheetReader openSheetReader(String sheet) {
+		synchronized (this) {
+			if (opened || !isXlsx() || !file.isFile()) {
+				return null;
+			}
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Streaming excel file: " + file.getAbsolutePath());
+		}
+		return XlsxSheetReader.open(file, sheet);
+	}
+
+	public Sheet getSheet(String sheet, boolean createIfNone) {
+		final Workbook workbook = getWorkbook();
 		Sheet s = null;
 		int index = -1;
 		if (workbook.getNumberOfSheets() > 0) {
@@ -111,15 +197,59 @@ public class ExcelFile implements Coerceable {
 	public boolean exists(){
 		return file.exists();
 	}
-	public void save() {
+	/**
+	 * Save the workbook to the file. A streamed workbook can only be saved
+	 * once, because its flushed rows are consumed by the save.
+	 */
+	public synchronized void save() {
+		if (streamSaved) {
+			throw new PaxmlRuntimeException("A streamed excel file can only be saved once: " + file.getAbsolutePath());
+		}
+		OutputStream out = null;
 		try {
-			workbook.write(new FileOutputStream(file));
+			out = new FileOutputStream(file);
+			getWorkbook().write(out);
+			out.close();
 		} catch (Exception e) {
 			throw new PaxmlRuntimeException("Cannot save excel to file: " + file.getAbsolutePath(), e);
+		} finally {
+			IOUtils.closeQuietly(out);
+			if (workbook instanceof SXSSFWorkbook) {
+				streamSaved = true;
+			}
+		}
+	}
+
+	/**
+	 * Check if the file is opened for streaming write.
+	 * 
+	 * @return true if streaming, false if the whole workbook is in memory.
+	 */
+	public boolean isStreaming() {
+		return windowSize > 0;
+	}
+
+	/**
+	 * Get the index of the last row of a sheet. A streamed sheet does not
+	 * report the rows of its existing file, so these are counted here too.
+	 * 
+	 * @param sheet
+	 *            the sheet of this file
+	 * @return the last row index, or -1 if the sheet has no rows.
+	 */
+	public int getLastRowNum(Sheet sheet) {
+		int last = sheet.getPhysicalNumberOfRows() == 0 ? -1 : sheet.getLastRowNum();
+		if (workbook instanceof SXSSFWorkbook) {
+			XSSFSheet template = ((SXSSFWorkbook) workbook).getXSSFWorkbook().getSheet(sheet.getSheetName());
+			if (template != null && template.getPhysicalNumberOfRows() > 0) {
+				last = Math.max(last, template.getLastRowNum());
+			}
 		}
+		return last;
 	}
 
 	public void clearEvaluatorCache() {
+		open();
 		evaluator.clearAllCachedResultValues();
 	}
 
@@ -143,6 +273,10 @@ public class ExcelFile implements Coerceable {
 
 		if (workbook != null) {
 			try {
+				if (workbook instanceof SXSSFWorkbook) {
+					// remove the temp files
+					((SXSSFWorkbook) workbook).dispose();
+				}
 				workbook.close();
 			} catch (Exception e) {
 
@@ -153,7 +287,12 @@ public class ExcelFile implements Coerceable {
 	}
 
 	public Object getCellValue(Cell cell) {
+		open();
 		CellValue cellValue = evaluator.evaluate(cell);
+		if (cellValue == null) {
+			// blank cell
+			return "";
+		}
 		switch (cellValue.getCellType()) {
 		case Cell.CELL_TYPE_BOOLEAN:
 			return cellValue.getBooleanValue();
@@ -174,6 +313,7 @@ public class ExcelFile implements Coerceable {
 	}
 
 	public Workbook getWorkbook() {
+		open();
 		return workbook;
 	}
 
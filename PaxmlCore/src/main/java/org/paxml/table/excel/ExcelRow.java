@@ -90,11 +90,14 @@ public class ExcelRow extends AbstractRow<ExcelTable> {
 
 	@Override
 	public ExcelCell getCell(int index) {
+		if (row == null) {
+			return new ExcelCell(index, this);
+		}
 		getTable().notifyMaxColumn(row.getLastCellNum() - 1);
 		
 		Cell c = row.getCell(index);
 		if (c == null) {
-			return new ExcelCell(index - 1, this);
+			return new ExcelCell(index, this);
 		} else {
 			return new ExcelCell(c, this);
 		}
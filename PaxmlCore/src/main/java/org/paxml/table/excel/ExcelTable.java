@@ -24,8 +24,10 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.collections.iterators.AbstractIteratorDecorator;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
+import org.paxml.core.PaxmlRuntimeException;
 import org.paxml.file.IFile;
 import org.paxml.table.AbstractTable;
 import org.paxml.table.IColumn;
@@ -54,6 +56,22 @@ public class ExcelTable extends AbstractTable implements IFile {
 		return new ExcelTable(file, sheet, range, false, false);
 	}
 
+	/**
+	 * Create a table for append only streaming write of a xlsx file, see
+	 * ExcelFile.forStreamingWrite().
+	 * 
+	 * @param file
+	 *            the xlsx file
+	 * @param sheet
+	 *            the sheet
+	 * @param windowSize
+	 *            the max number of rows kept in memory
+	 * @return the table
+	 */
+	public static ExcelTable forStreamingWrite(Object file, String sheet, int windowSize) {
+		return new ExcelTable(ExcelFile.forStreamingWrite(file, windowSize), sheet, (ITableRange) null, false, false);
+	}
+
 	public ExcelTable(Object file, String sheet, String range, boolean readonly, boolean compact) {
 		this(file instanceof ExcelFile ? (ExcelFile) file : new ExcelFile(file), sheet, range == null ? null : new ExcelRange(range, false), readonly, compact);
 	}
@@ -206,7 +224,8 @@ public class ExcelTable extends AbstractTable implements IFile {
 
 	@Override
 	public IRow createNextRow(Object... cellValues) {
-		ExcelRow row = getRow(getCurrentRowIndex() + 1);
+		// a streamed sheet can only be appended to
+		ExcelRow row = getRow(file.isStreaming() ? file.getLastRowNum(sheet) + 1 : getCurrentRowIndex() + 1);
 		for (int i = 0; i < cellValues.length; i++) {
 			row.setCellValue(i, cellValues[i]);
 		}
@@ -248,29 +267,50 @@ public class ExcelTable extends AbstractTable implements IFile {
 		if (c == 0) {
 			return;
 		}
-		final boolean shift = insert && range.getLastRow() <= sheet.getLastRowNum();
+		final int lastRowNum = file.getLastRowNum(sheet);
+		// appending after the last row never shifts
+		final boolean shift = insert && range.getLastRow() <= lastRowNum;
+		if (shift && file.isStreaming()) {
+			throw new PaxmlRuntimeException("Cannot insert rows before row " + (lastRowNum + 1) + " of a streamed excel file, only appending is supported: "
+					+ getResourceIdentifier());
+		}
+		// the existing rows of a streamed sheet cannot be written, so the
+		// new rows go after them
+		final int offset = file.isStreaming() ? Math.max(0, lastRowNum + 1 - range.getFirstRow()) : 0;
 
 		Iterator<IRow> sit = source.getRows();
 		if (c < 0) {
-			// c<0, unknown source row count, shift once per batch if needed;
+			// c<0, unknown source row count. If shifting is needed, reserve
+			// at least as many rows as inserted so far, so that the rows below
+			// are shifted a logarithmic number of times instead of once per
+			// batch, and shift back what is not used in the end.
 
 			final int batchSize = Math.min(range.getRowCount(), CACHE_SIZE);
 			int index = range.getFirstRow();
 			int read = 0;
+			int reserved = 0;
 			for (CachedIterator<IRow> it = new CachedIterator<IRow>(batchSize, sit); index < range.getLastRow() && it.hasNext();) {
 				List<IRow> batch = it.next();
-				if (shift) {
-					sheet.shiftRows(index, sheet.getLastRowNum(), batch.size());
+				if (shift && reserved < batch.size()) {
+					final int more = Math.max(batch.size() - reserved, read);
+					sheet.shiftRows(index + reserved, sheet.getLastRowNum(), more);
+					reserved += more;
 				}
 				for (int i = 0; i < batch.size(); i++) {
-					ExcelRow r = getRow(i + index);
+					ExcelRow r = getRow(i + index + offset);
 					IRow sr = batch.get(i);
 					setCellValues(r, range.getFirstColumn(), range.getLastColumn(), sr, tran);
 				}
+				if (shift) {
+					reserved -= batch.size();
+				}
 				read += batch.size();
 				index += batch.size();
 				it.setCacheSize(Math.min(CACHE_SIZE, range.getRowCount() - read));
 			}
+			if (reserved > 0) {
+				sheet.shiftRows(index + reserved, sheet.getLastRowNum(), -reserved);
+			}
 		} else {
 			// shift only needed
 			if (shift) {
@@ -278,7 +318,7 @@ public class ExcelTable extends AbstractTable implements IFile {
 			}
 
 			for (int i = range.getFirstRow(); i <= range.getLastRow() && sit.hasNext(); i++) {
-				ExcelRow r = getRow(i);
+				ExcelRow r = getRow(i + offset);
 				IRow sr = sit.next();
 				setCellValues(r, range.getFirstColumn(), range.getLastColumn(), sr, tran);
 			}
@@ -286,12 +326,30 @@ public class ExcelTable extends AbstractTable implements IFile {
 
 	}
 
+	@Override
+	protected void setCellValues(IRow rowDest, int from, int to, IRow rowSrc, ITableTransformer tran) {
+		if (to < Integer.MAX_VALUE) {
+			super.setCellValues(rowDest, from, to, rowSrc, tran);
+			return;
+		}
+		// open ended column range, only set the columns given by the source
+		for (Map.Entry<String, Object> entry : getTransformedCellValues(rowSrc, tran).entrySet()) {
+			final String col = entry.getKey();
+			if (col != null && col.length() <= 3 && StringUtils.isAllUpperCase(col)) {
+				final int j = ExcelColumn.getColumnIndex(col);
+				if (j >= from) {
+					rowDest.setCellValue(j, entry.getValue());
+				}
+			}
+		}
+	}
+
 	@Override
 	public int getRowCount() {
-		if (compact) {
+		if (compact && !file.isStreaming()) {
 			return sheet.getPhysicalNumberOfRows();
 		} else {
-			return sheet.getLastRowNum() + 1;
+			return file.getLastRowNum(sheet) + 1;
 		}
 	}
 
@@ -0,0 +1,277 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.table.excel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.paxml.core.PaxmlRuntimeException;
+
+/**
+ * Read only, forward only reader of one sheet in a xlsx file, which pulls the
+ * rows from the sheet xml one at a time instead of loading the whole workbook.
+ * Formula cells give their cached results, they are not evaluated.
+ * 
+ * Each row is given as a map from the 0 based column index to the cell value,
+ * with only the cells present in the file, in column order. The cell values are
+ * of the same types as given by ExcelFile.getCellValue().
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public class XlsxSheetReader implements Iterator<Map<Integer, Object>>, Closeable {
+
+	private final File file;
+	private final String sheetName;
+	private OPCPackage pkg;
+	private ReadOnlySharedStringsTable strings;
+	private InputStream in;
+	private XMLStreamReader xml;
+	private Map<Integer, Object> nextRow;
+	private int rowIndex = -1;
+	private int nextRowIndex = -1;
+
+	private XlsxSheetReader(File file, String sheetName) {
+		this.file = file;
+		this.sheetName = sheetName;
+	}
+
+	/**
+	 * Open a sheet for reading.
+	 * 
+	 * @param file
+	 *            the xlsx file
+	 * @param sheet
+	 *            the sheet name or 1 based sheet index, blank for the first
+	 *            sheet.
+	 * @return the reader, or null if the sheet can only be found with the full
+	 *         workbook loaded.
+	 */
+	public static XlsxSheetReader open(File file, String sheet) {
+		XlsxSheetReader reader = null;
+		boolean ok = false;
+		try {
+			reader = new XlsxSheetReader(file, sheet);
+			reader.pkg = OPCPackage.open(file.getPath(), PackageAccess.READ);
+			if (!reader.openSheet(new XSSFReader(reader.pkg), sheet)) {
+				return null;
+			}
+			reader.strings = new ReadOnlySharedStringsTable(reader.pkg);
+			reader.xml = XMLInputFactory.newInstance().createXMLStreamReader(reader.in);
+			ok = true;
+			return reader;
+		} catch (PaxmlRuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new PaxmlRuntimeException("Cannot read excel file: " + file.getAbsolutePath(), e);
+		} finally {
+			if (!ok && reader != null) {
+				reader.close();
+			}
+		}
+	}
+
+	private boolean openSheet(XSSFReader xssf, String sheet) throws Exception {
+		int index = 0;
+		if (StringUtils.isNotBlank(sheet)) {
+			index = -1;
+			XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) xssf.getSheetsData();
+			while (it.hasNext()) {
+				InputStream s = it.next();
+				if (sheet.equalsIgnoreCase(it.getSheetName())) {
+					in = s;
+					return true;
+				}
+				IOUtils.closeQuietly(s);
+			}
+			try {
+				index = Integer.parseInt(sheet.trim()) - 1;
+			} catch (Exception e) {
+				throw new PaxmlRuntimeException("Please specify either an existing sheet name or a sheet index number. This is neither: " + sheet, e);
+			}
+			if (index < 0) {
+				// the active sheet is only known from the workbook model
+				return false;
+			}
+		}
+		XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) xssf.getSheetsData();
+		for (int i = 0; it.hasNext(); i++) {
+			InputStream s = it.next();
+			if (i == index) {
+				in = s;
+				return true;
+			}
+			IOUtils.closeQuietly(s);
+		}
+		throw new PaxmlRuntimeException("No sheet found with index " + index + " in file: " + file.getAbsolutePath());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean hasNext() {
+		if (nextRow == null && xml != null) {
+			try {
+				nextRow = readRow();
+			} catch (PaxmlRuntimeException e) {
+				close();
+				throw e;
+			} catch (Exception e) {
+				close();
+				throw new PaxmlRuntimeException("Cannot read excel file: " + file.getAbsolutePath(), e);
+			}
+			if (nextRow == null) {
+				close();
+			}
+		}
+		return nextRow != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<Integer, Object> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Map<Integer, Object> row = nextRow;
+		nextRow = null;
+		rowIndex = nextRowIndex;
+		return row;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Get the 0 based index of the row last returned by next().
+	 * 
+	 * @return the row index, -1 if no row is read yet.
+	 */
+	public int getRowIndex() {
+		return rowIndex;
+	}
+
+	/**
+	 * Release the file.
+	 */
+	public void close() {
+		if (xml != null) {
+			try {
+				xml.close();
+			} catch (Exception e) {
+				// ignore
+			} finally {
+				xml = null;
+			}
+		}
+		IOUtils.closeQuietly(in);
+		in = null;
+		if (pkg != null) {
+			try {
+				pkg.revert();
+			} finally {
+				pkg = null;
+			}
+		}
+	}
+
+	private Map<Integer, Object> readRow() throws Exception {
+		Map<Integer, Object> row = null;
+		int col = -1;
+		String type = null;
+		String ref = null;
+		String value = null;
+		boolean formula = false;
+		while (xml.hasNext()) {
+			final int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				final String name = xml.getLocalName();
+				if ("row".equals(name)) {
+					row = new LinkedHashMap<Integer, Object>();
+					String r = xml.getAttributeValue(null, "r");
+					nextRowIndex = r == null ? nextRowIndex + 1 : Integer.parseInt(r) - 1;
+					col = -1;
+				} else if ("c".equals(name)) {
+					ref = xml.getAttributeValue(null, "r");
+					type = xml.getAttributeValue(null, "t");
+					col = ref == null ? col + 1 : new CellReference(ref).getCol();
+					value = null;
+					formula = false;
+				} else if ("v".equals(name)) {
+					value = xml.getElementText();
+				} else if ("f".equals(name)) {
+					formula = true;
+					xml.getElementText();
+				} else if ("t".equals(name) && "inlineStr".equals(type)) {
+					// rich text runs are concatenated
+					value = (value == null ? "" : value) + xml.getElementText();
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				final String name = xml.getLocalName();
+				if ("c".equals(name)) {
+					row.put(col, getCellValue(type, value, formula, ref));
+				} else if ("row".equals(name)) {
+					return row;
+				} else if ("sheetData".equals(name)) {
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	private Object getCellValue(String type, String value, boolean formula, String ref) {
+		if (value == null) {
+			if (formula) {
+				throw new PaxmlRuntimeException("Formula has no cached result in cell " + ref + " of sheet '" + sheetName + "' in file: "
+						+ file.getAbsolutePath() + ". Please read the file with formula evaluation.");
+			}
+			return "";
+		}
+		if ("s".equals(type)) {
+			return strings.getEntryAt(Integer.parseInt(value.trim()));
+		} else if ("b".equals(type)) {
+			return "1".equals(value.trim());
+		} else if ("e".equals(type) || "str".equals(type) || "inlineStr".equals(type)) {
+			return value;
+		} else {
+			return Double.valueOf(value.trim());
+		}
+	}
+
+}
@@ -51,6 +51,8 @@ public abstract class AbstractPaxmlEntity extends AbstractTag implements IEntity
 				}
 			}
 			Object result = super.execute(context);
+			// send what is still pending, e.g. sql batches, and fail on errors
+			context.flushCloseables();
 
 			return result;
 
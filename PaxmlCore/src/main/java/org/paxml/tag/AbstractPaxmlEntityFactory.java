@@ -375,6 +375,9 @@ public abstract class AbstractPaxmlEntityFactory implements IEntityFactory {
 			createChildren(newContext);
 			newContext.discard();
 		}
+		if (obj instanceof ConstTag) {
+			((ConstTag) obj).foldStaticValue();
+		}
 
 		return obj;
 	}
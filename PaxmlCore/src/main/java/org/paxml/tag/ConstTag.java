@@ -18,6 +18,7 @@ package org.paxml.tag;
 
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -25,9 +26,14 @@ import org.paxml.annotation.Tag;
 import org.paxml.core.Context;
 import org.paxml.core.Context.Scope;
 import org.paxml.core.IObjectContainer;
+import org.paxml.core.ITagExecutionListener;
 import org.paxml.core.ObjectList;
 import org.paxml.core.ObjectTree;
 import org.paxml.core.PaxmlRuntimeException;
+import org.paxml.el.ConcatExpression;
+import org.paxml.el.IExpression;
+import org.paxml.el.LiteralExpression;
+import org.paxml.tag.invoker.ExpressionTag;
 
 /**
  * The const tag impl.
@@ -59,6 +65,8 @@ public class ConstTag extends AbstractTag {
 
 	private String valueName;
 	private boolean subconst;
+	private boolean folded;
+	private Object staticValue;
 	private Scope scope;
 	private final Set<String> attributes = new LinkedHashSet<String>(0);
 
@@ -80,14 +88,58 @@ public class ConstTag extends AbstractTag {
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Precompute the value of this const if all its children are literal text
+	 * or sub consts that are folded themselves, so that executions only need to
+	 * bind a copy of the precomputed value. This is called by the parser after
+	 * all children are parsed, so the children are always folded before their
+	 * parent.
 	 */
-	@Override
-	protected Object doExecute(Context context) {
+	void foldStaticValue() {
+		ChildrenResultList childrenResults = new ChildrenResultList(getChildren().size());
+		for (ITag child : getChildren()) {
+			if (child.getCondition() != null) {
+				return;
+			}
+			if (child.getClass() == ConstTag.class) {
+				// sub classes may have their own execution logic, so only the
+				// plain const tags are folded into the parent
+				ConstTag sub = (ConstTag) child;
+				if (!sub.folded || !sub.isSubconst()) {
+					return;
+				}
+				childrenResults.add(new ConstNode(sub.getValueName(), sub.staticValue));
+			} else if (child instanceof ExpressionTag) {
+				ExpressionTag exp = (ExpressionTag) child;
+				if (exp.getIdExpression() != null || !exp.getChildren().isEmpty() || !isLiteral(exp.getExpression())) {
+					return;
+				}
+				childrenResults.add(exp.getExpression().evaluate(null));
+			} else {
+				return;
+			}
+		}
+		staticValue = buildValue(childrenResults);
+		folded = true;
+	}
 
-		Object myValue = null;
-		ChildrenResultList childrenResults = executeChildren(Scope.PARAMETER == scope ? context.findContextForEntity(getEntity()) : context);
+	private static boolean isLiteral(IExpression exp) {
+		if (exp instanceof LiteralExpression) {
+			return true;
+		}
+		return exp instanceof ConcatExpression && ((ConcatExpression) exp).isLiteral();
+	}
 
+	/**
+	 * Check if the value of this const is precomputed at parse time.
+	 * 
+	 * @return true if folded, false if the value is computed on each execution.
+	 */
+	public boolean isFolded() {
+		return folded;
+	}
+
+	private Object buildValue(ChildrenResultList childrenResults) {
+		Object myValue = null;
 		if (childrenResults != null) {
 			childrenResults = extractResults(childrenResults, null);
 			boolean allSubconsts = true;
@@ -145,6 +197,26 @@ public class ConstTag extends AbstractTag {
 				myValue = list.shrink();
 			}
 		}
+		return myValue;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Object doExecute(Context context) {
+
+		Object myValue;
+		if (folded && !hasTagExecutionListeners(context)) {
+			// bind a copy, which shares the precomputed value until either
+			// is changed, so binding is O(1) and changes made in any way,
+			// including through iteration, cannot leak into it. No need to
+			// copy for sub consts because the parent copies containers when
+			// adding them.
+			myValue = isSubconst() || !(staticValue instanceof IObjectContainer) ? staticValue : ((IObjectContainer) staticValue).copy();
+		} else {
+			myValue = buildValue(executeChildren(Scope.PARAMETER == scope ? context.findContextForEntity(getEntity()) : context));
+		}
 
 		if (Scope.LOCAL == scope) {
 			final IdExpression idExp = getIdExpression();
@@ -169,6 +241,11 @@ public class ConstTag extends AbstractTag {
 		return myValue;
 	}
 
+	private static boolean hasTagExecutionListeners(Context context) {
+		List<ITagExecutionListener> listeners = context.getTagExecutionListeners(false);
+		return listeners != null && !listeners.isEmpty();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
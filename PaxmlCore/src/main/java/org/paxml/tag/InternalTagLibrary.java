@@ -68,6 +68,7 @@ import org.paxml.bean.TrimTag;
 import org.paxml.bean.UuidTag;
 import org.paxml.bean.WriteFileTag;
 import org.paxml.bean.XpathSelectTag;
+import org.paxml.bean.excel.WriteExcelTag;
 import org.paxml.control.ElseTag;
 import org.paxml.control.ExitTag;
 import org.paxml.control.IfTag;
@@ -120,6 +121,7 @@ public final class InternalTagLibrary extends DefaultTagLibrary {
         registerTag(MutexTag.class);
         registerTag(ReadFileTag.class);
         registerTag(WriteFileTag.class);
+        registerTag(WriteExcelTag.class);
 
         registerTag(XpathSelectTag.class);
         registerTag(FlattenTag.class);
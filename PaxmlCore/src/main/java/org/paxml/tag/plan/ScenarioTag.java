@@ -50,6 +50,7 @@ public class ScenarioTag extends BeanTag {
 	private String path;
 	private String name;
 	private String group;
+	private int concurrency;
 
 	/**
 	 * {@inheritDoc}
@@ -72,6 +73,9 @@ public class ScenarioTag extends BeanTag {
 		}
 
 		Settings s = g.getSettings();
+		if (concurrency > 0) {
+			s.setConcurrency(concurrency);
+		}
 
 		for (String pattern : AbstractTag.parseDelimitedString(name, null)) {
 
@@ -146,6 +150,14 @@ public class ScenarioTag extends BeanTag {
 		this.group = group;
 	}
 
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
 	public String getPath() {
 		return path;
 	}
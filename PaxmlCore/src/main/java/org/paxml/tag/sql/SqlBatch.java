@@ -0,0 +1,243 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.tag.sql;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.paxml.core.Context;
+import org.paxml.core.PaxmlRuntimeException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * Pending jdbc batch of one parameterized statement on a data source. Rows of
+ * invocations with the same sql are collected and sent with one prepared
+ * statement per batch. There is at most one pending batch per data source and
+ * sql in the context tree, so that statements alternating in a loop are still
+ * batched. The batches are flushed when they are full, when another statement
+ * is executed on the same data source, and when the current entity exits, in
+ * which case a failing batch fails the entity. Rows of different statements
+ * are therefore not sent in the order they were added.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public class SqlBatch implements Flushable {
+	private static final Log log = LogFactory.getLog(SqlBatch.class);
+
+	/**
+	 * The default number of rows sent per batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/**
+	 * Private context keys.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private static enum PrivateKeys {
+		BATCHES
+	}
+
+	/**
+	 * The pending batches of a context tree, in the order of creation. It is
+	 * registered as closeable once, so that the entity flushes it on exit, and
+	 * removes itself from the context when closed.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private static class Batches implements Closeable, Flushable {
+		private final Context context;
+		private final Map<List<Object>, SqlBatch> map = new LinkedHashMap<List<Object>, SqlBatch>(2);
+
+		private Batches(Context context) {
+			this.context = context;
+		}
+
+		private synchronized SqlBatch get(DataSource dataSource, String sql, int batchSize) {
+			final List<Object> key = key(dataSource, sql);
+			SqlBatch batch = map.get(key);
+			if (batch != null) {
+				if (batch.batchSize == (batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE)) {
+					return batch;
+				}
+				batch.flush();
+			}
+			batch = new SqlBatch(dataSource, sql, batchSize);
+			map.put(key, batch);
+			return batch;
+		}
+
+		private synchronized void flush(DataSource dataSource) {
+			for (SqlBatch batch : map.values()) {
+				if (batch.dataSource == dataSource) {
+					batch.flush();
+				}
+			}
+		}
+
+		@Override
+		public synchronized void close() {
+			if (context.getInternalObject(PrivateKeys.BATCHES, true) == this) {
+				context.removeInternalObject(PrivateKeys.BATCHES, true);
+			}
+			try {
+				flush();
+			} finally {
+				map.clear();
+			}
+		}
+
+		@Override
+		public synchronized void flush() {
+			RuntimeException error = null;
+			for (SqlBatch batch : map.values()) {
+				try {
+					batch.flush();
+				} catch (RuntimeException e) {
+					if (error == null) {
+						error = e;
+					}
+				}
+			}
+			if (error != null) {
+				throw error;
+			}
+		}
+
+		private static List<Object> key(DataSource dataSource, String sql) {
+			List<Object> key = new ArrayList<Object>(2);
+			key.add(dataSource);
+			key.add(sql);
+			return key;
+		}
+	}
+
+	private final DataSource dataSource;
+	private final NamedParameterJdbcTemplate template;
+	private final String sql;
+	private final int batchSize;
+	private final List<Map<String, ?>> rows;
+
+	private SqlBatch(DataSource dataSource, String sql, int batchSize) {
+		this.dataSource = dataSource;
+		this.template = new NamedParameterJdbcTemplate(dataSource);
+		this.sql = sql;
+		this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+		this.rows = new ArrayList<Map<String, ?>>(Math.min(this.batchSize, DEFAULT_BATCH_SIZE));
+	}
+
+	private static Batches getBatches(Context context, boolean create) {
+		synchronized (context) {
+			Batches batches = (Batches) context.getInternalObject(PrivateKeys.BATCHES, true);
+			if (batches == null && create) {
+				batches = new Batches(context);
+				context.setInternalObject(PrivateKeys.BATCHES, batches, true);
+				context.registerCloseable(batches);
+			}
+			return batches;
+		}
+	}
+
+	/**
+	 * Get the pending batch of a statement.
+	 * 
+	 * @param context
+	 *            the context
+	 * @param dataSource
+	 *            the data source
+	 * @param sql
+	 *            the sql with named parameters
+	 * @param batchSize
+	 *            the number of rows per batch, 0 or less for the default
+	 * @return the batch, never null
+	 */
+	public static SqlBatch getBatch(Context context, DataSource dataSource, String sql, int batchSize) {
+		return getBatches(context, true).get(dataSource, sql, batchSize);
+	}
+
+	/**
+	 * Flush the pending batches on a data source, if any.
+	 * 
+	 * @param context
+	 *            the context
+	 * @param dataSource
+	 *            the data source
+	 */
+	public static void flush(Context context, DataSource dataSource) {
+		Batches batches = getBatches(context, false);
+		if (batches != null) {
+			batches.flush(dataSource);
+		}
+	}
+
+	/**
+	 * Add a row of parameters, sending the batch if it becomes full.
+	 * 
+	 * @param row
+	 *            the parameters keyed by name
+	 */
+	public synchronized void add(Map<String, ?> row) {
+		rows.add(row);
+		if (rows.size() >= batchSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * Send the collected rows.
+	 */
+	@Override
+	public synchronized void flush() {
+		if (rows.isEmpty()) {
+			return;
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Running sql batch of " + rows.size() + " rows: " + sql);
+		}
+		try {
+			template.batchUpdate(sql, rows.toArray(new Map[rows.size()]));
+		} catch (RuntimeException e) {
+			throw new PaxmlRuntimeException("Cannot execute sql batch of " + rows.size() + " rows: " + sql, e);
+		} finally {
+			rows.clear();
+		}
+	}
+
+	public String getSql() {
+		return sql;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public synchronized int getPendingRows() {
+		return rows.size();
+	}
+
+}
@@ -16,19 +16,17 @@
  */
 package org.paxml.tag.sql;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
 import javax.sql.DataSource;
 
-import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.lang3.StringUtils;
 import org.paxml.annotation.Tag;
 import org.paxml.bean.BeanTag;
 import org.paxml.core.Context;
+import org.paxml.util.DataSourceRegistry;
 
 /**
- * Soap data source tag impl.
+ * Sql data source tag impl, taking the pooled data source from the
+ * DataSourceRegistry.
  * 
  * @author Xuetao Niu
  * 
@@ -36,8 +34,6 @@ import org.paxml.core.Context;
 @Tag(name = "sqlDataSource")
 public class SqlDataSourceTag extends BeanTag {
 
-	private static final ConcurrentMap<String, DataSource> CACHE = new ConcurrentHashMap<String, DataSource>();
-
 	/**
 	 * Private context keys.
 	 * 
@@ -64,37 +60,12 @@ public class SqlDataSourceTag extends BeanTag {
 		return (DataSource) context.getLocalInternalObject(PrivateKeys.DATA_SOURCE, true);
 	}
 
-	private String getCacheKey() {
-		String sep = " | ";
-		return url + sep + username + sep + password + sep + driver;
-	}
-
-	private DataSource getCacheOrCreate() {
-		String key = getCacheKey();
-		DataSource ds = CACHE.get(key);
-		if (ds == null) {
-			BasicDataSource dataSource = new BasicDataSource();
-			dataSource.setDriverClassName(getDriver());
-			dataSource.setUrl(url);
-			dataSource.setUsername(username);
-			dataSource.setPassword(password);
-			dataSource.setDefaultAutoCommit(true);
-			DataSource existing = CACHE.putIfAbsent(key, dataSource);
-			if (existing != null) {
-				ds = existing;
-			} else {
-				ds = dataSource;
-			}
-		}
-		return ds;
-	}
-
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	protected Object doInvoke(Context context) throws Exception {
-		DataSource dataSource = getCacheOrCreate();
+		DataSource dataSource = DataSourceRegistry.getDefault().getDataSource(getDriver(), url, username, password, context);
 		Context targetContext = context.findContextForEntity(getEntity());
 		String id = getId(context);
 		if (StringUtils.isNotBlank(id)) {
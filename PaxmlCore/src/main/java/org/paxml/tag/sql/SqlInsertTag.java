@@ -22,13 +22,21 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import javax.sql.DataSource;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.paxml.annotation.Tag;
+import org.paxml.core.Context;
+import org.paxml.core.PaxmlRuntimeException;
+import org.paxml.util.ReflectUtils;
+import org.paxml.util.ReflectUtils.TraverseObjectCallback;
 
 /**
- * SqlInsert tag impl.
+ * SqlInsert tag impl. With the "batchSize" attribute given, the rows of
+ * consecutive invocations are sent in jdbc batches; with the "rows" attribute
+ * given, all rows of a list or table are inserted in batches.
  * 
  * @author Xuetao Niu
  * 
@@ -40,6 +48,55 @@ public class SqlInsertTag extends SqlTag {
 	private String table;
 	private String correlation;
 	private boolean delete = true;
+	private int batchSize;
+	private Object rows;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Object doInvoke(Context context) throws Exception {
+		final boolean correlated = delete && StringUtils.isNotBlank(correlation);
+		if (rows == null && (batchSize <= 0 || correlated)) {
+			return super.doInvoke(context);
+		}
+		if (rows != null && getParam() != null) {
+			throw new PaxmlRuntimeException("Cannot have both the 'rows' and the 'param' attributes given!");
+		}
+		if (correlated) {
+			throw new PaxmlRuntimeException("Cannot batch insert rows with correlated deletion, please set the 'delete' attribute to false.");
+		}
+		final Context ctx = context;
+		final DataSource ds = initJdbcTemplate(context).getDataSource();
+		if (rows == null) {
+			Map map = getParam();
+			SqlBatch.getBatch(context, ds, getInsertStatement(table, map), batchSize).add(map);
+			return null;
+		}
+		final int[] count = { 0 };
+		ReflectUtils.traverseObject(rows instanceof Map ? Arrays.asList(rows) : rows, new TraverseObjectCallback() {
+			private SqlBatch batch;
+			private Set keys;
+
+			@Override
+			public boolean onElement(Object ele) {
+				if (!(ele instanceof Map)) {
+					throw new PaxmlRuntimeException("Row to insert should be a map, but got: " + ele);
+				}
+				Map map = (Map) ele;
+				if (batch == null || !keys.equals(map.keySet())) {
+					keys = new HashSet(map.keySet());
+					batch = SqlBatch.getBatch(ctx, ds, getInsertStatement(table, map), batchSize);
+				}
+				batch.add(map);
+				count[0]++;
+				return true;
+			}
+		});
+		// send what is pending, so that the count is what has been inserted
+		SqlBatch.flush(context, ds);
+		return count[0];
+	}
 
 	@Override
 	public Object getValue() {
@@ -60,7 +117,13 @@ public class SqlInsertTag extends SqlTag {
 
 		}
 
-		sb.append("insert into ").append(table).append(" (");
+		sb.append(getInsertStatement(table, map)).append(";\r\n");
+		return sb.toString();
+	}
+
+	static String getInsertStatement(String table, Map map) {
+		StringBuilder sb = new StringBuilder("insert into ");
+		sb.append(table).append(" (");
 		boolean first = true;
 		for (Object k : map.keySet()) {
 			if (first) {
@@ -80,7 +143,7 @@ public class SqlInsertTag extends SqlTag {
 			}
 			sb.append(":").append(k);
 		}
-		sb.append(");\r\n");
+		sb.append(")");
 		return sb.toString();
 	}
 
@@ -108,4 +171,20 @@ public class SqlInsertTag extends SqlTag {
 		this.delete = delete;
 	}
 
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public Object getRows() {
+		return rows;
+	}
+
+	public void setRows(Object rows) {
+		this.rows = rows;
+	}
+
 }
@@ -16,6 +16,7 @@
  */
 package org.paxml.tag.sql;
 
+import java.io.Closeable;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -38,12 +39,15 @@ import org.paxml.util.IterableResultSet;
 @Tag(name = "sqlQuery")
 public class SqlQueryTag extends AbstractClosureTag {
     /**
-     * A closable result set reader.
+     * A closable result set reader, which closes itself after the last row is
+     * read.
      * 
      * @author Xuetao Niu
      * 
      */
-    public static class ClosableResultSetIterable extends IterableResultSet {
+    public static class ClosableResultSetIterable extends IterableResultSet implements Closeable {
+        private volatile boolean closed;
+
         /**
          * Create from ResultSet.
          * 
@@ -56,10 +60,22 @@ public class SqlQueryTag extends AbstractClosureTag {
             super(rs, readColumnNames);
         }
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void onEnd() {
+            close();
+        }
+
         /**
          * Close the associated sql statement and connection.
          */
         public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
             Statement stmt = null;
             Connection con = null;
             ResultSet rs = null;
@@ -78,6 +94,10 @@ public class SqlQueryTag extends AbstractClosureTag {
 
         }
 
+        public boolean isClosed() {
+            return closed;
+        }
+
     }
 
     /**
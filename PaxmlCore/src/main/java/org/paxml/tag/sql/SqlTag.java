@@ -38,13 +38,19 @@ import org.paxml.annotation.Tag;
 import org.paxml.bean.BeanTag;
 import org.paxml.core.Context;
 import org.paxml.core.PaxmlRuntimeException;
+import org.paxml.tag.sql.SqlQueryTag.ClosableResultSetIterable;
+import org.paxml.tag.sql.SqlQueryTag.ResultSetsHolder;
 import org.paxml.util.DBUtils;
 import org.paxml.util.PaxmlUtils;
 import org.springframework.core.io.Resource;
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
 /**
@@ -136,6 +142,7 @@ public class SqlTag extends BeanTag {
 	private boolean readColumnNames = true;
 	private boolean list = true;
 	private boolean singleStatement;
+	private int fetchSize;
 	private Map param;
 
 	/**
@@ -143,15 +150,10 @@ public class SqlTag extends BeanTag {
 	 */
 	@Override
 	protected Object doInvoke(Context context) throws Exception {
-		if (jdbcTemplate == null) {
-			final DataSource ds = findDataSource(context);
-			if (ds == null) {
-				throw new PaxmlRuntimeException("No data source found!");
-			}
-			jdbcTemplate = new JdbcTemplate(ds);
-		} else if (dataSource != null) {
-			throw new PaxmlRuntimeException("Cannot have both the 'jdbcTemplate'" + " and the 'dataSource' attributes given!");
-		}
+		initJdbcTemplate(context);
+		// keep the statement order with the batched ones
+		SqlBatch.flush(context, jdbcTemplate.getDataSource());
+
 		Object result = null;
 		if (StringUtils.isNotBlank(file)) {
 			Resource res = PaxmlUtils.getResource(file, getResource().getSpringResource());
@@ -187,7 +189,31 @@ public class SqlTag extends BeanTag {
 		return result;
 	}
 
-	protected Object executeSql(String sql, Context context) {
+	/**
+	 * Make sure the jdbc template is there, creating it from the data source
+	 * if not given.
+	 * 
+	 * @param context
+	 *            the context
+	 * @return the jdbc template, never null
+	 */
+	protected JdbcTemplate initJdbcTemplate(Context context) {
+		if (jdbcTemplate == null) {
+			final DataSource ds = findDataSource(context);
+			if (ds == null) {
+				throw new PaxmlRuntimeException("No data source found!");
+			}
+			jdbcTemplate = new JdbcTemplate(ds);
+			if (fetchSize != 0) {
+				jdbcTemplate.setFetchSize(fetchSize);
+			}
+		} else if (dataSource != null) {
+			throw new PaxmlRuntimeException("Cannot have both the 'jdbcTemplate'" + " and the 'dataSource' attributes given!");
+		}
+		return jdbcTemplate;
+	}
+
+	protected Object executeSql(String sql, final Context context) {
 
 		return executeSql(sql, new ISqlExecutor() {
 			@Override
@@ -211,6 +237,9 @@ public class SqlTag extends BeanTag {
 
 			@Override
 			public Object query(String sql, boolean close) {
+				if (!close) {
+					return queryLazily(sql, context);
+				}
 				if (param != null) {
 					NamedParameterJdbcTemplate t = new NamedParameterJdbcTemplate(jdbcTemplate);
 					return t.queryForList(sql, param);
@@ -223,6 +252,52 @@ public class SqlTag extends BeanTag {
 
 	}
 
+	/**
+	 * Run a query with a forward only cursor, returning the rows as an
+	 * iterable that reads from the cursor on demand. The cursor is closed after
+	 * the last row is read, or at the end of the enclosing sqlQuery closure, or
+	 * when the current entity exits, whichever comes first.
+	 * 
+	 * @param sql
+	 *            the query
+	 * @param context
+	 *            the context
+	 * @return the iterable of rows, each as a map
+	 */
+	private ClosableResultSetIterable queryLazily(String sql, Context context) {
+		Connection con = null;
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			con = jdbcTemplate.getDataSource().getConnection();
+			if (param != null) {
+				ParsedSql parsed = NamedParameterUtils.parseSqlStatement(sql);
+				MapSqlParameterSource source = new MapSqlParameterSource(param);
+				ps = con.prepareStatement(NamedParameterUtils.substituteNamedParameters(parsed, source), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				new ArgumentPreparedStatementSetter(NamedParameterUtils.buildValueArray(parsed, source, null)).setValues(ps);
+			} else {
+				ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			}
+			if (fetchSize != 0) {
+				ps.setFetchSize(fetchSize);
+			}
+			rs = ps.executeQuery();
+			ClosableResultSetIterable it = new ClosableResultSetIterable(rs, readColumnNames);
+			ResultSetsHolder holder = SqlQueryTag.getClosureTag(context);
+			if (holder != null) {
+				holder.register(it);
+			} else {
+				context.registerCloseable(it);
+			}
+			return it;
+		} catch (Exception e) {
+			SqlQueryTag.closeResultSet(rs);
+			SqlQueryTag.closeStatement(ps);
+			SqlQueryTag.closeConnection(con);
+			throw new PaxmlRuntimeException("Cannot execute sql: " + sql, e);
+		}
+	}
+
 	private Object executeSql(String sql, ISqlExecutor exe) {
 
 		Object result = null;
@@ -256,7 +331,7 @@ public class SqlTag extends BeanTag {
 						log.debug("Running sql: " + sqlList.get(i));
 					}
 					try {
-						result = exe.query(sqlList.get(i), true);
+						result = exe.query(sqlList.get(i), false);
 					} catch (RuntimeException e) {
 						throw new PaxmlRuntimeException("Cannot execute sql: " + sqlList.get(i), e);
 					}
@@ -339,6 +414,14 @@ public class SqlTag extends BeanTag {
 		this.singleStatement = singleStatement;
 	}
 
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
 	public static boolean isQuery(String sql) {
 
 		final String select = "select";
@@ -25,6 +25,8 @@ import java.security.KeyStore.PasswordProtection;
 import java.security.KeyStoreException;
 import java.security.MessageDigest;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
@@ -54,6 +56,60 @@ public class CryptoUtils {
 	private static final String DEFAULT_KEY_PASSWORD = "key_pass";
 
 	private static final RWTaskExecutor keyStoreExecutor = new RWTaskExecutor();
+	private static final ConcurrentMap<String, LoadedKeyStore> loadedKeyStores = new ConcurrentHashMap<String, LoadedKeyStore>();
+
+	/**
+	 * A key store file loaded in memory, with the key values read from it so
+	 * far. It is never changed once loaded, so it can be read without locking,
+	 * and it is replaced when written or when the file is changed.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	private static final class LoadedKeyStore {
+		private final KeyStore keyStore;
+		private final String passwordHash;
+		private final long lastModified;
+		private final long length;
+		private final ConcurrentMap<String, String> keys = new ConcurrentHashMap<String, String>();
+
+		private LoadedKeyStore(KeyStore keyStore, String password, File file) {
+			this.keyStore = keyStore;
+			this.passwordHash = hash(password);
+			this.lastModified = file.lastModified();
+			this.length = file.length();
+		}
+
+		private boolean isValid(File file, String password) {
+			return file.lastModified() == lastModified && file.length() == length && passwordHash.equals(hash(password));
+		}
+
+		private String getKey(String keyName, String keyPassword) {
+			final String cacheKey = keyName + "\n" + (keyPassword == null ? "" : hash(keyPassword));
+			String value = keys.get(cacheKey);
+			if (value == null) {
+				value = CryptoUtils.getKey(keyStore, keyName, keyPassword);
+				if (value != null) {
+					keys.put(cacheKey, value);
+				}
+			}
+			return value;
+		}
+	}
+
+	private static String hash(String password) {
+		try {
+			return hexEncode(MessageDigest.getInstance("SHA-256").digest(password.getBytes(KEY_VALUE_ENCODING)));
+		} catch (Exception e) {
+			throw new PaxmlRuntimeException(e);
+		}
+	}
+
+	private static LoadedKeyStore cacheKeyStore(File file, String password, KeyStore keyStore) {
+		LoadedKeyStore loaded = new LoadedKeyStore(keyStore, password, file);
+		loadedKeyStores.put(file.getAbsolutePath(), loaded);
+		return loaded;
+	}
 
 	private static SecretKey getSecretKey(String keyValue) {
 
@@ -146,8 +202,10 @@ public class CryptoUtils {
 
 			@Override
 			public Void call() throws Exception {
+				loadedKeyStores.remove(key);
 				KeyStore keyStore = getKeyStore(file, oldPassword);
 				saveKeyStore(file, newPassword, keyStore);
+				cacheKeyStore(file, newPassword, keyStore);
 				return null;
 			}
 		});
@@ -156,14 +214,17 @@ public class CryptoUtils {
 	public static String getKey(String keyStoreName, final String keyStorePassword, final String keyName, final String keyPassword) {
 		final File file = getKeyStoreFile(keyStoreName);
 		final String key = file.getAbsolutePath();
-		return keyStoreExecutor.executeRead(key, new Callable<String>() {
-
-			@Override
-			public String call() throws Exception {
-				KeyStore keyStore = getKeyStore(file, keyStorePassword);
-				return getKey(keyStore, keyName, keyPassword);
-			}
-		});
+		LoadedKeyStore loaded = loadedKeyStores.get(key);
+		if (loaded == null || !loaded.isValid(file, keyStorePassword)) {
+			loaded = keyStoreExecutor.executeRead(key, new Callable<LoadedKeyStore>() {
+
+				@Override
+				public LoadedKeyStore call() throws Exception {
+					return cacheKeyStore(file, keyStorePassword, getKeyStore(file, keyStorePassword));
+				}
+			});
+		}
+		return loaded.getKey(keyName, keyPassword);
 
 	}
 
@@ -199,6 +260,7 @@ public class CryptoUtils {
 
 			@Override
 			public Boolean call() throws Exception {
+				loadedKeyStores.remove(file.getAbsolutePath());
 				return file.delete();
 			}
 
@@ -212,7 +274,11 @@ public class CryptoUtils {
 
 			@Override
 			public Void call() throws Exception {
-				deleteKey(getKeyStore(file, keyStorePassword), keyName);
+				loadedKeyStores.remove(file.getAbsolutePath());
+				KeyStore keyStore = getKeyStore(file, keyStorePassword);
+				deleteKey(keyStore, keyName);
+				saveKeyStore(file, keyStorePassword, keyStore);
+				cacheKeyStore(file, keyStorePassword, keyStore);
 				return null;
 			}
 
@@ -237,9 +303,11 @@ public class CryptoUtils {
 			@Override
 			public Void call() throws Exception {
 
+				loadedKeyStores.remove(key);
 				KeyStore keyStore = getKeyStore(file, keyStorePassword);
 				setKey(keyStore, keyName, keyPassword, keyValue);
 				saveKeyStore(file, keyStorePassword, keyStore);
+				cacheKeyStore(file, keyStorePassword, keyStore);
 				return null;
 			}
 		});
@@ -19,23 +19,17 @@ package org.paxml.util;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 import javax.sql.DataSource;
 
-import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.io.IOUtils;
 import org.paxml.core.PaxmlRuntimeException;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 public class DBUtils {
 
-	private static final ConcurrentMap<String, BasicDataSource> pooledDataSources = new ConcurrentHashMap<String, BasicDataSource>();
-
 	public static final String H2_DRIVER_CLASS = "org.h2.Driver";
 	public static final String H2_USER = "sa";
 	public static final String H2_PASSWORD = "";
@@ -70,27 +64,7 @@ public class DBUtils {
 	}
 
 	public static DataSource getPooledDataSource(String driverClass, String username, String password, String url) {
-		String key = driverClass + "::" + url;
-		BasicDataSource ds = pooledDataSources.get(key);
-		if (ds == null) {
-			ds = new BasicDataSource();
-			ds.setDriverClassName(driverClass);
-			ds.setUsername(username);
-			ds.setPassword(password);
-			ds.setUrl(url);
-			BasicDataSource existingDs = pooledDataSources.putIfAbsent(key, ds);
-			if (existingDs != null) {
-				try {
-					ds.close();
-				} catch (SQLException e) {
-					// do nothing
-				}
-				ds = existingDs;
-			}
-
-		}
-
-		return ds;
+		return DataSourceRegistry.getDefault().getDataSource(driverClass, url, username, password, new DataSourceRegistry.PoolSettings());
 	}
 
 	public static List<String> breakSql(String sql) {
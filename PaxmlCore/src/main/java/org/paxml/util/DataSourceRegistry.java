@@ -0,0 +1,417 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.util;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.paxml.core.Context;
+import org.paxml.core.PaxmlRuntimeException;
+
+/**
+ * Registry of pooled data sources shared by the sql tags, the excel tags and
+ * DBUtils. The pools can be configured with consts, typically given as
+ * properties in the plan file, see the *_CONST fields. A pool is configured
+ * once when created, and pools with different settings are kept apart.
+ * 
+ * The pools live as long as runs use them: PaxmlRunner calls startRun() and
+ * endRun() around every plan or paxml run, and when the last running run ends
+ * the pool metrics are logged and the pools are closed. Pools of in-memory
+ * databases are kept, because closing them would drop the databases.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public class DataSourceRegistry {
+	private static final Log log = LogFactory.getLog(DataSourceRegistry.class);
+	/**
+	 * Max number of active connections per pool, negative for no limit.
+	 */
+	public static final String MAX_ACTIVE_CONST = "paxml.db.maxActive";
+	/**
+	 * Max number of idle connections per pool, negative for no limit.
+	 */
+	public static final String MAX_IDLE_CONST = "paxml.db.maxIdle";
+	/**
+	 * Min number of idle connections per pool.
+	 */
+	public static final String MIN_IDLE_CONST = "paxml.db.minIdle";
+	/**
+	 * Ms to wait for a connection when the pool is exhausted, negative to wait
+	 * forever.
+	 */
+	public static final String MAX_WAIT_CONST = "paxml.db.maxWait";
+	/**
+	 * The query to validate connections with when borrowed and while idle.
+	 */
+	public static final String VALIDATION_QUERY_CONST = "paxml.db.validationQuery";
+	/**
+	 * Ms between the runs of the idle connection evictor, 0 or less to not
+	 * evict.
+	 */
+	public static final String EVICTION_INTERVAL_CONST = "paxml.db.evictionInterval";
+	/**
+	 * Ms after which an idle connection can be evicted.
+	 */
+	public static final String IDLE_TIMEOUT_CONST = "paxml.db.idleTimeout";
+
+	public static final int DEFAULT_MAX_ACTIVE = 20;
+	public static final int DEFAULT_MAX_IDLE = 20;
+	public static final long DEFAULT_MAX_WAIT = 30000;
+	public static final long DEFAULT_EVICTION_INTERVAL = 60000;
+	public static final long DEFAULT_IDLE_TIMEOUT = 300000;
+
+	/**
+	 * The settings of a pool, the defaults unless changed.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	public static class PoolSettings {
+		private int maxActive = DEFAULT_MAX_ACTIVE;
+		private int maxIdle = DEFAULT_MAX_IDLE;
+		private int minIdle;
+		private long maxWait = DEFAULT_MAX_WAIT;
+		private long evictionInterval = DEFAULT_EVICTION_INTERVAL;
+		private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+		private String validationQuery;
+
+		/**
+		 * Read the settings given as consts in a context, using the defaults
+		 * for the missing ones.
+		 * 
+		 * @param context
+		 *            the context
+		 * @return the settings
+		 */
+		public static PoolSettings fromContext(Context context) {
+			PoolSettings settings = new PoolSettings();
+			Integer value = context.getConst(MAX_ACTIVE_CONST, true, Integer.class);
+			if (value != null) {
+				settings.maxActive = value;
+			}
+			value = context.getConst(MAX_IDLE_CONST, true, Integer.class);
+			if (value != null) {
+				settings.maxIdle = value;
+			}
+			value = context.getConst(MIN_IDLE_CONST, true, Integer.class);
+			if (value != null) {
+				settings.minIdle = value;
+			}
+			Long ms = context.getConst(MAX_WAIT_CONST, true, Long.class);
+			if (ms != null) {
+				settings.maxWait = ms;
+			}
+			ms = context.getConst(EVICTION_INTERVAL_CONST, true, Long.class);
+			if (ms != null) {
+				settings.evictionInterval = ms;
+			}
+			ms = context.getConst(IDLE_TIMEOUT_CONST, true, Long.class);
+			if (ms != null) {
+				settings.idleTimeout = ms;
+			}
+			settings.validationQuery = context.getConst(VALIDATION_QUERY_CONST, true, String.class);
+			return settings;
+		}
+
+		private void apply(MeteredDataSource ds) {
+			ds.setMaxActive(maxActive);
+			ds.setMaxIdle(maxIdle);
+			ds.setMinIdle(minIdle);
+			ds.setMaxWait(maxWait);
+			ds.setTimeBetweenEvictionRunsMillis(evictionInterval);
+			ds.setMinEvictableIdleTimeMillis(idleTimeout);
+			if (validationQuery != null) {
+				ds.setValidationQuery(validationQuery);
+				ds.setTestOnBorrow(true);
+				ds.setTestWhileIdle(true);
+			}
+		}
+
+		public int getMaxActive() {
+			return maxActive;
+		}
+
+		public void setMaxActive(int maxActive) {
+			this.maxActive = maxActive;
+		}
+
+		public int getMaxIdle() {
+			return maxIdle;
+		}
+
+		public void setMaxIdle(int maxIdle) {
+			this.maxIdle = maxIdle;
+		}
+
+		public int getMinIdle() {
+			return minIdle;
+		}
+
+		public void setMinIdle(int minIdle) {
+			this.minIdle = minIdle;
+		}
+
+		public long getMaxWait() {
+			return maxWait;
+		}
+
+		public void setMaxWait(long maxWait) {
+			this.maxWait = maxWait;
+		}
+
+		public long getEvictionInterval() {
+			return evictionInterval;
+		}
+
+		public void setEvictionInterval(long evictionInterval) {
+			this.evictionInterval = evictionInterval;
+		}
+
+		public long getIdleTimeout() {
+			return idleTimeout;
+		}
+
+		public void setIdleTimeout(long idleTimeout) {
+			this.idleTimeout = idleTimeout;
+		}
+
+		public String getValidationQuery() {
+			return validationQuery;
+		}
+
+		public void setValidationQuery(String validationQuery) {
+			this.validationQuery = validationQuery;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String toString() {
+			return "maxActive=" + maxActive + ", maxIdle=" + maxIdle + ", minIdle=" + minIdle + ", maxWait=" + maxWait
+					+ ", evictionInterval=" + evictionInterval + ", idleTimeout=" + idleTimeout + ", validationQuery="
+					+ validationQuery;
+		}
+	}
+
+	/**
+	 * A pool with the name its metrics are given with.
+	 */
+	private static final class Pool {
+		private final String name;
+		private final MeteredDataSource dataSource;
+
+		private Pool(String name, MeteredDataSource dataSource) {
+			this.name = name;
+			this.dataSource = dataSource;
+		}
+	}
+
+	private static final DataSourceRegistry DEFAULT = new DataSourceRegistry();
+
+	private final ConcurrentMap<String, Pool> pools = new ConcurrentHashMap<String, Pool>();
+	private int runs;
+
+	/**
+	 * Get the jvm wide registry.
+	 * 
+	 * @return the registry, never null
+	 */
+	public static DataSourceRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Get or create the pooled data source of a database account.
+	 * 
+	 * @param driver
+	 *            the jdbc driver class name
+	 * @param url
+	 *            the jdbc url
+	 * @param username
+	 *            the username, can be null
+	 * @param password
+	 *            the password, can be null
+	 * @param context
+	 *            the context to read the pool settings from, null to use the
+	 *            default settings
+	 * @return the data source, never null
+	 */
+	public MeteredDataSource getDataSource(String driver, String url, String username, String password, Context context) {
+		return getDataSource(driver, url, username, password, context == null ? new PoolSettings() : PoolSettings.fromContext(context));
+	}
+
+	/**
+	 * Get or create the pooled data source of a database account with the
+	 * given pool settings.
+	 * 
+	 * @param driver
+	 *            the jdbc driver class name
+	 * @param url
+	 *            the jdbc url
+	 * @param username
+	 *            the username, can be null
+	 * @param password
+	 *            the password, can be null
+	 * @param settings
+	 *            the pool settings, applied only when the pool is created
+	 * @return the data source, never null
+	 */
+	public MeteredDataSource getDataSource(String driver, String url, String username, String password, PoolSettings settings) {
+		final String sep = " | ";
+		final String name = driver + sep + url + sep + username + sep + settings;
+		final String key = name + sep + digest(password);
+		Pool pool = pools.get(key);
+		if (pool == null) {
+			MeteredDataSource created = new MeteredDataSource();
+			created.setDriverClassName(driver);
+			created.setUrl(url);
+			created.setUsername(username);
+			created.setPassword(password);
+			created.setDefaultAutoCommit(true);
+			created.setPoolPreparedStatements(true);
+			settings.apply(created);
+			Pool newPool = new Pool(name, created);
+			pool = pools.putIfAbsent(key, newPool);
+			if (pool == null) {
+				pool = newPool;
+			}
+		}
+		return pool.dataSource;
+	}
+
+	/**
+	 * Mark the start of a run using the pools, to be paired with endRun().
+	 */
+	public synchronized void startRun() {
+		runs++;
+	}
+
+	/**
+	 * Mark the end of a run. When no other run is running, the pool metrics
+	 * are logged, and the pools are closed except the ones of in-memory
+	 * databases.
+	 */
+	public synchronized void endRun() {
+		if (runs <= 0) {
+			throw new PaxmlRuntimeException("No run started!");
+		}
+		if (--runs > 0) {
+			return;
+		}
+		if (log.isInfoEnabled()) {
+			for (Map.Entry<String, Map<String, Object>> entry : getMetrics().entrySet()) {
+				log.info("Data source pool metrics of " + entry.getKey() + ": " + entry.getValue());
+			}
+		}
+		for (Map.Entry<String, Pool> entry : pools.entrySet()) {
+			if (!isInMemory(entry.getValue().dataSource.getUrl()) && pools.remove(entry.getKey(), entry.getValue())) {
+				close(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Check if a jdbc url is of an in-memory database, which only lives as
+	 * long as connections to it are open.
+	 * 
+	 * @param url
+	 *            the url
+	 * @return true if in-memory, false otherwise
+	 */
+	public static boolean isInMemory(String url) {
+		return StringUtils.startsWithIgnoreCase(url, "jdbc:h2:mem:") || StringUtils.startsWithIgnoreCase(url, "jdbc:hsqldb:mem:")
+				|| StringUtils.startsWithIgnoreCase(url, "jdbc:derby:memory:");
+	}
+
+	private static String digest(String password) {
+		if (password == null) {
+			return null;
+		}
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			return new BigInteger(1, md.digest(password.getBytes("UTF-8"))).toString(16);
+		} catch (NoSuchAlgorithmException e) {
+			throw new PaxmlRuntimeException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new PaxmlRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Close and forget all pools, typically on shutdown.
+	 */
+	public void closeAll() {
+		for (String key : pools.keySet()) {
+			Pool pool = pools.remove(key);
+			if (pool != null) {
+				close(pool);
+			}
+		}
+	}
+
+	private void close(Pool pool) {
+		if (log.isDebugEnabled()) {
+			log.debug("Closing data source pool " + pool.name + ": " + pool.dataSource.getMetrics());
+		}
+		try {
+			pool.dataSource.close();
+		} catch (SQLException e) {
+			log.warn("Cannot close data source pool: " + pool.name, e);
+		}
+	}
+
+	/**
+	 * Get the metrics of all pools, also available to scenarios as
+	 * util.getDataSourceMetrics().
+	 * 
+	 * @return the metrics keyed by pool name, which is made of the driver, url,
+	 *         username and pool settings, numbered if not unique.
+	 */
+	public Map<String, Map<String, Object>> getMetrics() {
+		Map<String, Map<String, Object>> map = new LinkedHashMap<String, Map<String, Object>>();
+		for (Pool pool : pools.values()) {
+			String name = pool.name;
+			// pools differing only in the password
+			for (int i = 2; map.containsKey(name); i++) {
+				name = pool.name + " #" + i;
+			}
+			map.put(name, pool.dataSource.getMetrics());
+		}
+		return map;
+	}
+
+	/**
+	 * Get the number of pools.
+	 * 
+	 * @return the size
+	 */
+	public int size() {
+		return pools.size();
+	}
+}
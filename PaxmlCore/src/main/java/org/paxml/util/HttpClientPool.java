@@ -0,0 +1,306 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.paxml.core.Context;
+
+/**
+ * Shared http client with a pool of keep-alive connections, used by the http,
+ * soap and rest tags. The pool can be configured with consts, typically given
+ * as properties in the plan file, see the *_CONST fields. A pool is configured
+ * once when created, and there is one jvm wide pool per distinct settings.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public class HttpClientPool {
+	/**
+	 * Max number of pooled connections per host.
+	 */
+	public static final String MAX_CONNECTIONS_PER_HOST_CONST = "paxml.http.maxConnectionsPerHost";
+	/**
+	 * Max number of pooled connections in total.
+	 */
+	public static final String MAX_TOTAL_CONNECTIONS_CONST = "paxml.http.maxTotalConnections";
+	/**
+	 * Ms after which an idle connection is closed.
+	 */
+	public static final String IDLE_TIMEOUT_CONST = "paxml.http.idleTimeout";
+	/**
+	 * Ms to wait for a connection to establish, 0 for no timeout.
+	 */
+	public static final String CONNECTION_TIMEOUT_CONST = "paxml.http.connectionTimeout";
+	/**
+	 * Ms to wait for data, 0 for no timeout.
+	 */
+	public static final String SO_TIMEOUT_CONST = "paxml.http.soTimeout";
+
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 20;
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 200;
+	public static final long DEFAULT_IDLE_TIMEOUT = 60000;
+
+	private static enum PrivateKeys {
+		/**
+		 * The pool chosen for an execution.
+		 */
+		POOL
+	}
+
+	/**
+	 * The settings of a pool, the defaults unless changed.
+	 * 
+	 * @author Xuetao Niu
+	 * 
+	 */
+	public static class PoolSettings {
+		private int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+		private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+		private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+		private int connectionTimeout;
+		private int soTimeout;
+
+		/**
+		 * Read the settings given as consts in a context, using the defaults
+		 * for the missing ones.
+		 * 
+		 * @param context
+		 *            the context
+		 * @return the settings
+		 */
+		public static PoolSettings fromContext(Context context) {
+			PoolSettings settings = new PoolSettings();
+			Integer value = context.getConst(MAX_CONNECTIONS_PER_HOST_CONST, true, Integer.class);
+			if (value != null) {
+				settings.maxConnectionsPerHost = value;
+			}
+			value = context.getConst(MAX_TOTAL_CONNECTIONS_CONST, true, Integer.class);
+			if (value != null) {
+				settings.maxTotalConnections = value;
+			}
+			value = context.getConst(CONNECTION_TIMEOUT_CONST, true, Integer.class);
+			if (value != null) {
+				settings.connectionTimeout = value;
+			}
+			value = context.getConst(SO_TIMEOUT_CONST, true, Integer.class);
+			if (value != null) {
+				settings.soTimeout = value;
+			}
+			Long idle = context.getConst(IDLE_TIMEOUT_CONST, true, Long.class);
+			if (idle != null) {
+				settings.idleTimeout = idle;
+			}
+			return settings;
+		}
+
+		public int getMaxConnectionsPerHost() {
+			return maxConnectionsPerHost;
+		}
+
+		public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+			this.maxConnectionsPerHost = maxConnectionsPerHost;
+		}
+
+		public int getMaxTotalConnections() {
+			return maxTotalConnections;
+		}
+
+		public void setMaxTotalConnections(int maxTotalConnections) {
+			this.maxTotalConnections = maxTotalConnections;
+		}
+
+		public long getIdleTimeout() {
+			return idleTimeout;
+		}
+
+		public void setIdleTimeout(long idleTimeout) {
+			this.idleTimeout = idleTimeout;
+		}
+
+		public int getConnectionTimeout() {
+			return connectionTimeout;
+		}
+
+		public void setConnectionTimeout(int connectionTimeout) {
+			this.connectionTimeout = connectionTimeout;
+		}
+
+		public int getSoTimeout() {
+			return soTimeout;
+		}
+
+		public void setSoTimeout(int soTimeout) {
+			this.soTimeout = soTimeout;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String toString() {
+			return "maxConnectionsPerHost=" + maxConnectionsPerHost + ", maxTotalConnections=" + maxTotalConnections + ", idleTimeout="
+					+ idleTimeout + ", connectionTimeout=" + connectionTimeout + ", soTimeout=" + soTimeout;
+		}
+	}
+
+	private static final ConcurrentMap<String, HttpClientPool> POOLS = new ConcurrentHashMap<String, HttpClientPool>();
+
+	private static final HttpClientPool DEFAULT = getPool(new PoolSettings());
+
+	private final MultiThreadedHttpConnectionManager connectionManager = new MultiThreadedHttpConnectionManager();
+	private final HttpClient client = new HttpClient(connectionManager);
+	private IdleConnectionTimeoutThread idleConnectionEvictor;
+
+	/**
+	 * Create a pool with the default settings.
+	 */
+	public HttpClientPool() {
+		this(new PoolSettings());
+	}
+
+	/**
+	 * Create a pool.
+	 * 
+	 * @param settings
+	 *            the settings
+	 */
+	public HttpClientPool(PoolSettings settings) {
+		HttpConnectionManagerParams params = connectionManager.getParams();
+		params.setDefaultMaxConnectionsPerHost(settings.getMaxConnectionsPerHost());
+		params.setMaxTotalConnections(settings.getMaxTotalConnections());
+		params.setConnectionTimeout(settings.getConnectionTimeout());
+		params.setSoTimeout(settings.getSoTimeout());
+		params.setStaleCheckingEnabled(true);
+		if (settings.getIdleTimeout() > 0) {
+			final long ms = settings.getIdleTimeout();
+			idleConnectionEvictor = new IdleConnectionTimeoutThread();
+			idleConnectionEvictor.setName("paxml-http-idle-evictor-" + ms);
+			idleConnectionEvictor.setConnectionTimeout(ms);
+			idleConnectionEvictor.setTimeoutInterval(Math.max(ms / 2, 1000));
+			idleConnectionEvictor.addConnectionManager(connectionManager);
+			idleConnectionEvictor.start();
+		}
+	}
+
+	/**
+	 * Get the jvm wide pool with the default settings.
+	 * 
+	 * @return the pool, never null
+	 */
+	public static HttpClientPool getDefaultPool() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Get or create the jvm wide pool with the given settings.
+	 * 
+	 * @param settings
+	 *            the settings
+	 * @return the pool, never null
+	 */
+	public static HttpClientPool getPool(PoolSettings settings) {
+		final String key = settings.toString();
+		HttpClientPool pool = POOLS.get(key);
+		if (pool == null) {
+			synchronized (POOLS) {
+				pool = POOLS.get(key);
+				if (pool == null) {
+					pool = new HttpClientPool(settings);
+					POOLS.put(key, pool);
+				}
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * Get the jvm wide pool with the settings found in the context, looked up
+	 * once per execution.
+	 * 
+	 * @param context
+	 *            the context, null for the default pool
+	 * @return the pool, never null
+	 */
+	public static HttpClientPool getPool(Context context) {
+		if (context == null) {
+			return DEFAULT;
+		}
+		HttpClientPool pool = (HttpClientPool) context.getInternalObject(PrivateKeys.POOL, true);
+		if (pool == null) {
+			pool = getPool(PoolSettings.fromContext(context));
+			context.setInternalObject(PrivateKeys.POOL, pool, true);
+		}
+		return pool;
+	}
+
+	/**
+	 * Get the shared client of the pool with the settings found in the
+	 * context.
+	 * 
+	 * @param context
+	 *            the context, null for the default pool
+	 * @return the client, never null
+	 */
+	public static HttpClient getHttpClient(Context context) {
+		return getPool(context).getHttpClient();
+	}
+
+	public HttpClient getHttpClient() {
+		return client;
+	}
+
+	public MultiThreadedHttpConnectionManager getConnectionManager() {
+		return connectionManager;
+	}
+
+	/**
+	 * Get the pool metrics.
+	 * 
+	 * @return the metrics by name
+	 */
+	public Map<String, Object> getMetrics() {
+		HttpConnectionManagerParams params = connectionManager.getParams();
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("connectionsInPool", connectionManager.getConnectionsInPool());
+		map.put("maxConnectionsPerHost", params.getDefaultMaxConnectionsPerHost());
+		map.put("maxTotalConnections", params.getMaxTotalConnections());
+		return map;
+	}
+
+	/**
+	 * Close all pooled connections and stop evicting idle ones. A shared pool
+	 * is also dropped, so that the next lookup creates a new one.
+	 */
+	public synchronized void shutdown() {
+		synchronized (POOLS) {
+			POOLS.values().remove(this);
+		}
+		if (idleConnectionEvictor != null) {
+			idleConnectionEvictor.shutdown();
+			idleConnectionEvictor = null;
+		}
+		connectionManager.shutdown();
+	}
+}
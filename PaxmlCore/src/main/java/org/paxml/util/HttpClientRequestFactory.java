@@ -0,0 +1,187 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
+import org.apache.commons.httpclient.methods.DeleteMethod;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.methods.HeadMethod;
+import org.apache.commons.httpclient.methods.OptionsMethod;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.PutMethod;
+import org.apache.commons.httpclient.methods.TraceMethod;
+import org.paxml.core.PaxmlRuntimeException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Spring request factory sending requests with a commons http client, so that
+ * rest calls share the pooled connections of HttpClientPool.
+ *
+ * @author Xuetao Niu
+ *
+ */
+public class HttpClientRequestFactory implements ClientHttpRequestFactory {
+
+	private final HttpClient client;
+
+	public HttpClientRequestFactory(HttpClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+		return new Request(uri, httpMethod, createMethod(uri, httpMethod));
+	}
+
+	private org.apache.commons.httpclient.HttpMethod createMethod(URI uri, HttpMethod httpMethod) {
+		final String url = uri.toString();
+		switch (httpMethod) {
+		case GET:
+			return new GetMethod(url);
+		case POST:
+			return new PostMethod(url);
+		case PUT:
+			return new PutMethod(url);
+		case DELETE:
+			return new DeleteMethod(url);
+		case HEAD:
+			return new HeadMethod(url);
+		case OPTIONS:
+			return new OptionsMethod(url);
+		case TRACE:
+			return new TraceMethod(url);
+		default:
+			throw new PaxmlRuntimeException("Http method not supported: " + httpMethod);
+		}
+	}
+
+	private class Request extends AbstractClientHttpRequest {
+		private final URI uri;
+		private final HttpMethod httpMethod;
+		private final org.apache.commons.httpclient.HttpMethod method;
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		private Request(URI uri, HttpMethod httpMethod, org.apache.commons.httpclient.HttpMethod method) {
+			this.uri = uri;
+			this.httpMethod = httpMethod;
+			this.method = method;
+		}
+
+		@Override
+		public HttpMethod getMethod() {
+			return httpMethod;
+		}
+
+		@Override
+		public URI getURI() {
+			return uri;
+		}
+
+		@Override
+		protected OutputStream getBodyInternal(HttpHeaders headers) throws IOException {
+			return body;
+		}
+
+		@Override
+		protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+			for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+				// the entity sets the length itself
+				if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(entry.getKey())) {
+					continue;
+				}
+				for (String value : entry.getValue()) {
+					method.addRequestHeader(entry.getKey(), value);
+				}
+			}
+			if (method instanceof EntityEnclosingMethod) {
+				((EntityEnclosingMethod) method).setRequestEntity(new ByteArrayRequestEntity(body.toByteArray()));
+			}
+			try {
+				client.executeMethod(method);
+			} catch (IOException e) {
+				method.releaseConnection();
+				throw e;
+			}
+			return new Response(method);
+		}
+	}
+
+	private static class Response extends AbstractClientHttpResponse {
+		private final org.apache.commons.httpclient.HttpMethod method;
+		private HttpHeaders headers;
+
+		private Response(org.apache.commons.httpclient.HttpMethod method) {
+			this.method = method;
+		}
+
+		@Override
+		public int getRawStatusCode() throws IOException {
+			return method.getStatusCode();
+		}
+
+		@Override
+		public String getStatusText() throws IOException {
+			return method.getStatusText();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			if (headers == null) {
+				headers = new HttpHeaders();
+				for (Header header : method.getResponseHeaders()) {
+					headers.add(header.getName(), header.getValue());
+				}
+			}
+			return headers;
+		}
+
+		@Override
+		public InputStream getBody() throws IOException {
+			InputStream in = method.getResponseBodyAsStream();
+			return in == null ? new ByteArrayInputStream(new byte[0]) : in;
+		}
+
+		/**
+		 * Gives the connection back to the pool.
+		 */
+		@Override
+		public void close() {
+			method.releaseConnection();
+		}
+	}
+}
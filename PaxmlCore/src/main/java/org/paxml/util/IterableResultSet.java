@@ -80,6 +80,7 @@ public class IterableResultSet implements Iterable<Map<String, Object>> {
                         }
                     } else {
                         next = null;
+                        onEnd();
                     }
                 } catch (SQLException e) {
                     throw new PaxmlRuntimeException(e);
@@ -107,6 +108,13 @@ public class IterableResultSet implements Iterable<Map<String, Object>> {
         };
     }
 
+    /**
+     * Called when the last row has been read, does nothing by default.
+     */
+    protected void onEnd() {
+        // do nothing
+    }
+
     public String[] getColumns() {
         return cols;
     }
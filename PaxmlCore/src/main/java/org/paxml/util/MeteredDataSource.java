@@ -0,0 +1,110 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.dbcp.BasicDataSource;
+
+/**
+ * Pooled data source that measures how long it takes to borrow connections.
+ * 
+ * @author Xuetao Niu
+ * 
+ */
+public class MeteredDataSource extends BasicDataSource {
+	/**
+	 * The upper bounds in ms of the borrow latency histogram buckets, with one
+	 * more bucket for anything above the last bound.
+	 */
+	public static final long[] BORROW_LATENCY_BUCKETS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+	private final AtomicLongArray borrowLatencies = new AtomicLongArray(BORROW_LATENCY_BUCKETS.length + 1);
+	private final AtomicLong borrows = new AtomicLong();
+	private final AtomicLong borrowFailures = new AtomicLong();
+	private final AtomicLong totalWait = new AtomicLong();
+	private final AtomicLong maxWait = new AtomicLong();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		final long start = System.nanoTime();
+		boolean borrowed = false;
+		try {
+			Connection con = super.getConnection();
+			borrowed = true;
+			return con;
+		} finally {
+			record(System.nanoTime() - start, borrowed);
+		}
+	}
+
+	private void record(long nanos, boolean borrowed) {
+		if (borrowed) {
+			borrows.incrementAndGet();
+		} else {
+			borrowFailures.incrementAndGet();
+		}
+		totalWait.addAndGet(nanos);
+		long max = maxWait.get();
+		while (nanos > max && !maxWait.compareAndSet(max, nanos)) {
+			max = maxWait.get();
+		}
+		final long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+		int i = 0;
+		while (i < BORROW_LATENCY_BUCKETS.length && ms > BORROW_LATENCY_BUCKETS[i]) {
+			i++;
+		}
+		borrowLatencies.incrementAndGet(i);
+	}
+
+	/**
+	 * Get the pool metrics.
+	 * 
+	 * @return the metrics by name
+	 */
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("url", getUrl());
+		map.put("username", getUsername());
+		map.put("numActive", getNumActive());
+		map.put("numIdle", getNumIdle());
+		map.put("maxActive", getMaxActive());
+		map.put("maxIdle", getMaxIdle());
+		final long count = borrows.get() + borrowFailures.get();
+		map.put("borrows", borrows.get());
+		map.put("borrowFailures", borrowFailures.get());
+		map.put("totalWaitMs", TimeUnit.NANOSECONDS.toMillis(totalWait.get()));
+		map.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWait.get()));
+		map.put("avgWaitMs", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWait.get() / count));
+		Map<String, Long> histogram = new LinkedHashMap<String, Long>();
+		for (int i = 0; i < BORROW_LATENCY_BUCKETS.length; i++) {
+			histogram.put("<=" + BORROW_LATENCY_BUCKETS[i], borrowLatencies.get(i));
+		}
+		histogram.put(">" + BORROW_LATENCY_BUCKETS[BORROW_LATENCY_BUCKETS.length - 1], borrowLatencies.get(BORROW_LATENCY_BUCKETS.length));
+		map.put("borrowLatencyMs", histogram);
+		return map;
+	}
+}
@@ -16,10 +16,18 @@
  */
 package org.paxml.util;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectWriter;
 import org.codehaus.jackson.type.TypeReference;
 import org.json.JSONObject;
 import org.paxml.core.IObjectContainer;
@@ -30,34 +38,106 @@ import com.thoughtworks.xstream.io.xml.DomDriver;
 import com.thoughtworks.xstream.io.xml.XmlFriendlyNameCoder;
 
 public class XmlUtils {
-	
+	/**
+	 * Max number of cached XStream instances.
+	 */
+	public static final int MAX_CACHED_XSTREAMS = 256;
+
+	// both are thread safe once configured, and leave the given streams open
+	private static final ObjectMapper JSON_MAPPER = new ObjectMapper().configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+			.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+	private static final ObjectWriter JSON_WRITER = JSON_MAPPER.writerWithDefaultPrettyPrinter();
+	private static final TypeReference<Object> JSON_TYPE = new TypeReference<Object>() {
+	};
+	private static final ConcurrentMap<String, XStream> XSTREAMS = new ConcurrentHashMap<String, XStream>();
+
 	public static String toJson(Object obj) {
-		ObjectMapper mapper = new ObjectMapper();
 		try {
-			return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(obj);
+			return JSON_WRITER.writeValueAsString(obj);
 		} catch (Exception e) {
 			throw new PaxmlRuntimeException("Cannot convert to json", e);
 		}
 
 	}
+
+	/**
+	 * Write json straight to a stream, without building it as a string.
+	 * 
+	 * @param obj
+	 *            the object to convert
+	 * @param out
+	 *            the stream, not closed by this method
+	 */
+	public static void toJson(Object obj, OutputStream out) {
+		try {
+			JSON_WRITER.writeValue(out, obj);
+		} catch (Exception e) {
+			throw new PaxmlRuntimeException("Cannot convert to json", e);
+		}
+	}
+
+	/**
+	 * Write json straight to a writer, without building it as a string.
+	 * 
+	 * @param obj
+	 *            the object to convert
+	 * @param writer
+	 *            the writer, not closed by this method
+	 */
+	public static void toJson(Object obj, Writer writer) {
+		try {
+			JSON_WRITER.writeValue(writer, obj);
+		} catch (Exception e) {
+			throw new PaxmlRuntimeException("Cannot convert to json", e);
+		}
+	}
+
 	public static String toXml(final Object obj) {
 		return toXml(obj, null, null);
 	}
+
 	public static String toXml(final Object obj, String rootTag, String topCollectionTag) {
-		if(obj==null){
+		if (obj == null) {
 			return null;
 		}
+		return getXStream(obj, rootTag, topCollectionTag).toXML(obj);
+	}
+
+	/**
+	 * Write xml straight to a writer, without building it as a string.
+	 * 
+	 * @param obj
+	 *            the object to convert, null to write nothing
+	 * @param rootTag
+	 *            the root tag, null for default
+	 * @param topCollectionTag
+	 *            the item tag of a top level collection, null for default
+	 * @param writer
+	 *            the writer, not closed by this method
+	 */
+	public static void toXml(final Object obj, String rootTag, String topCollectionTag, Writer writer) {
+		if (obj == null) {
+			return;
+		}
+		getXStream(obj, rootTag, topCollectionTag).toXML(obj, writer);
+	}
+
+	private static XStream getXStream(final Object obj, String rootTag, String topCollectionTag) {
 		if (rootTag == null && obj instanceof IObjectContainer) {
 			rootTag = ((IObjectContainer) obj).name();
 		}
 		if (rootTag == null) {
 			rootTag = "xml-fragment";
 		}
-		if(topCollectionTag==null){
-			topCollectionTag="item";
+		if (topCollectionTag == null) {
+			topCollectionTag = "item";
 		}
-
-		XStream xstream = new XStream(new DomDriver("UTF-8", new XmlFriendlyNameCoder("&#36;", "_")));		
+		final String key = obj.getClass().getName() + " " + rootTag + " " + topCollectionTag;
+		XStream xstream = XSTREAMS.get(key);
+		if (xstream != null) {
+			return xstream;
+		}
+		xstream = new XStream(new DomDriver("UTF-8", new XmlFriendlyNameCoder("&#36;", "_")));
 		xstream.alias(rootTag, obj.getClass());
 		xstream.alias(rootTag, Map.class);
 		xstream.alias(rootTag, List.class);
@@ -67,8 +147,13 @@ public class XmlUtils {
 		// Integer.MIN_VALUE);
 		xstream.registerConverter(new XStreamBeanConverter(false, xstream.getMapper()), -20);
 
-		return xstream.toXML(obj);
-
+		if (XSTREAMS.size() >= MAX_CACHED_XSTREAMS) {
+			// the keys are mostly from a few classes and tags, so just start
+			// over when there are too many
+			XSTREAMS.clear();
+		}
+		XStream existing = XSTREAMS.putIfAbsent(key, xstream);
+		return existing == null ? xstream : existing;
 	}
 
 	public static String xmlToJson(String xml) {
@@ -127,13 +212,27 @@ public class XmlUtils {
 		return fromJson(json, true);
 	}
 
-	public static Object fromJson(String json, boolean keepSingleRoot) {
+	/**
+	 * Parse json straight from a stream, without reading it into a string.
+	 * 
+	 * @param in
+	 *            the stream, not closed by this method
+	 * @return the parsed object
+	 */
+	public static Object fromJson(InputStream in) {
 
-		ObjectMapper mapper = new ObjectMapper();
+		try {
+			return JSON_MAPPER.readValue(in, JSON_TYPE);
+
+		} catch (Exception e) {
+			throw new PaxmlRuntimeException("Cannot parse from json", e);
+		}
+	}
+
+	public static Object fromJson(String json, boolean keepSingleRoot) {
 
 		try {
-			return mapper.readValue(json, new TypeReference<Object>() {
-			});
+			return JSON_MAPPER.readValue(json, JSON_TYPE);
 
 		} catch (Exception e) {
 			throw new PaxmlRuntimeException("Cannot parse from json", e);
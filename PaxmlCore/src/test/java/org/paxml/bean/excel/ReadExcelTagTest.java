@@ -0,0 +1,76 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.bean.excel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+import org.paxml.table.excel.ExcelFile;
+
+public class ReadExcelTagTest {
+
+	private List read(File file, String range, boolean lazy) throws Exception {
+		ReadExcelTag tag = new ReadExcelTag();
+		tag.setFile(new ExcelFile(file));
+		tag.setRange(range);
+		tag.setLazy(lazy);
+		tag.afterPropertiesInjection(null);
+		List list = new ArrayList();
+		for (Iterator it = tag.getIterator(null); it.hasNext();) {
+			list.add(it.next());
+		}
+		return list;
+	}
+
+	@Test
+	public void testStreamingSameAsLoaded() throws Exception {
+		File file = new File("target/readExcelTagTest/data.xlsx");
+		FileUtils.forceMkdir(file.getParentFile());
+		XSSFWorkbook wb = new XSSFWorkbook();
+		Sheet s = wb.createSheet();
+		for (int i = 0; i < 10; i++) {
+			Row r = s.createRow(i);
+			for (int j = 0; j < 5; j++) {
+				if (j % 2 == 0) {
+					r.createCell(j).setCellValue("r" + i + "c" + j);
+				} else {
+					r.createCell(j).setCellValue(i * j);
+				}
+			}
+		}
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			wb.write(out);
+		} finally {
+			out.close();
+		}
+
+		List loaded = read(file, "B3:D6", false);
+		Assert.assertEquals(4, loaded.size());
+		Assert.assertEquals(loaded, read(file, "B3:D6", true));
+		Assert.assertEquals(read(file, "C", false), read(file, "C", true));
+	}
+}
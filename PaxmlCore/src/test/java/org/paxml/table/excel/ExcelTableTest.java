@@ -18,8 +18,13 @@ package org.paxml.table.excel;
 
 import java.io.File;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.Assert;
 import org.junit.Test;
+import org.paxml.core.PaxmlRuntimeException;
 import org.paxml.table.IRow;
+import org.paxml.table.TableRange;
 
 public class ExcelTableTest {
 	@Test
@@ -30,4 +35,120 @@ public class ExcelTableTest {
 		}
 		
 	}
+
+	private ExcelTable createTable(String name, String prefix, int rows, final boolean knownRowCount) {
+		File file = new File("target/excelTableTest/" + name + ".xlsx");
+		FileUtils.deleteQuietly(file);
+		ExcelTable table = new ExcelTable(new ExcelFile(file), (String) null, (TableRange) null, false, false) {
+			@Override
+			public int getRowCount() {
+				return knownRowCount ? super.getRowCount() : -1;
+			}
+		};
+		for (int i = 0; i < rows; i++) {
+			table.getRow(i).setCellValue(0, prefix + i);
+			table.getRow(i).setCellValue(1, i);
+		}
+		return table;
+	}
+
+	private void assertRow(Sheet sheet, ExcelFile file, int index, String a, double b) {
+		Assert.assertEquals(a, file.getCellValue(sheet.getRow(index).getCell(0)));
+		Assert.assertEquals(b, file.getCellValue(sheet.getRow(index).getCell(1)));
+	}
+
+	@Test
+	public void testStreamingWrite() {
+		File file = new File("target/excelTableTest/streamed.xlsx");
+		FileUtils.deleteQuietly(file);
+		file.getParentFile().mkdirs();
+		ExcelTable table = ExcelTable.forStreamingWrite(file, "data", 10);
+		table.setPart(new TableRange(0, -1, 0, -1, false), createTable("source1", "a", 500, true), true, null);
+		table.setPart(new TableRange(500, -1, 0, -1, false), createTable("source2", "b", 300, false), true, null);
+		try {
+			table.setPart(new TableRange(100, 200, 0, -1, false), createTable("source3", "c", 1, true), true, null);
+			Assert.fail("Insert into a streamed sheet should fail");
+		} catch (PaxmlRuntimeException e) {
+			// expected
+		}
+		table.flush();
+		table.close();
+
+		ExcelFile result = new ExcelFile(file);
+		Sheet sheet = result.getSheet("data", false);
+		Assert.assertEquals(799, sheet.getLastRowNum());
+		assertRow(sheet, result, 0, "a0", 0);
+		assertRow(sheet, result, 499, "a499", 499);
+		assertRow(sheet, result, 500, "b0", 0);
+		assertRow(sheet, result, 799, "b299", 299);
+		result.close();
+	}
+
+	@Test
+	public void testStreamingSavedOnce() {
+		File file = new File("target/excelTableTest/savedOnce.xlsx");
+		FileUtils.deleteQuietly(file);
+		file.getParentFile().mkdirs();
+		ExcelTable table = ExcelTable.forStreamingWrite(file, "data", 10);
+		table.createNextRow("a0", 0);
+		table.createNextRow("a1", 1);
+		table.flush();
+		try {
+			table.flush();
+			Assert.fail("A streamed file should be saved only once");
+		} catch (PaxmlRuntimeException e) {
+			// expected
+		}
+		table.close();
+
+		ExcelFile result = new ExcelFile(file);
+		Sheet sheet = result.getSheet("data", false);
+		Assert.assertEquals(1, sheet.getLastRowNum());
+		assertRow(sheet, result, 0, "a0", 0);
+		assertRow(sheet, result, 1, "a1", 1);
+		result.close();
+	}
+
+	@Test
+	public void testStreamingAppend() {
+		ExcelTable existing = createTable("appended", "a", 5, true);
+		final String sheetName = existing.getName();
+		final File file = existing.getFile().getFile();
+		file.getParentFile().mkdirs();
+		existing.flush();
+		existing.close();
+
+		ExcelTable table = ExcelTable.forStreamingWrite(file, sheetName, 10);
+		Assert.assertEquals(5, table.getRowCount());
+		table.setPart(new TableRange(0, -1, 0, -1, false), createTable("source4", "b", 30, true), true, null);
+		table.setPart(new TableRange(0, -1, 0, -1, false), createTable("source5", "c", 20, false), true, null);
+		Assert.assertEquals(55, table.getRowCount());
+		table.flush();
+		table.close();
+
+		ExcelFile result = new ExcelFile(file);
+		Sheet sheet = result.getSheet(sheetName, false);
+		Assert.assertEquals(54, sheet.getLastRowNum());
+		assertRow(sheet, result, 0, "a0", 0);
+		assertRow(sheet, result, 4, "a4", 4);
+		assertRow(sheet, result, 5, "b0", 0);
+		assertRow(sheet, result, 34, "b29", 29);
+		assertRow(sheet, result, 35, "c0", 0);
+		assertRow(sheet, result, 54, "c19", 19);
+		result.close();
+	}
+
+	@Test
+	public void testInsertUnknownRowCount() {
+		ExcelTable table = createTable("insert", "old", 300, true);
+		table.setPart(new TableRange(10, 250, 0, -1, false), createTable("inserted", "new", 180, false), true, null);
+
+		Sheet sheet = table.getSheet();
+		Assert.assertEquals(479, sheet.getLastRowNum());
+		assertRow(sheet, table.getFile(), 9, "old9", 9);
+		assertRow(sheet, table.getFile(), 10, "new0", 0);
+		assertRow(sheet, table.getFile(), 189, "new179", 179);
+		assertRow(sheet, table.getFile(), 190, "old10", 10);
+		assertRow(sheet, table.getFile(), 479, "old299", 299);
+	}
 }
@@ -0,0 +1,106 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.table.excel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+import org.paxml.core.PaxmlRuntimeException;
+
+public class XlsxSheetReaderTest {
+
+	private File createFile(boolean evaluate) throws Exception {
+		File file = new File("target/xlsxSheetReaderTest/" + (evaluate ? "evaluated" : "raw") + ".xlsx");
+		FileUtils.forceMkdir(file.getParentFile());
+		XSSFWorkbook wb = new XSSFWorkbook();
+		wb.createSheet("first").createRow(0).createCell(0).setCellValue("not me");
+		Sheet s = wb.createSheet("data");
+		Row r = s.createRow(0);
+		r.createCell(0).setCellValue("name");
+		r.createCell(2).setCellValue(true);
+		r.createCell(3);
+		r = s.createRow(2);
+		r.createCell(1).setCellValue(1.5);
+		r.createCell(2).setCellValue("name");
+		Cell f = r.createCell(3);
+		f.setCellFormula("B3*2");
+		if (evaluate) {
+			wb.getCreationHelper().createFormulaEvaluator().evaluateFormulaCell(f);
+		}
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			wb.write(out);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void testSameAsWorkbook() throws Exception {
+		File file = createFile(true);
+		XlsxSheetReader reader = new ExcelFile(file).openSheetReader("DATA");
+		ExcelFile excel = new ExcelFile(file);
+		Sheet sheet = excel.getSheet("data", false);
+		Iterator<Row> rows = sheet.iterator();
+		int count = 0;
+		while (reader.hasNext()) {
+			Map<Integer, Object> cells = reader.next();
+			Row row = rows.next();
+			Assert.assertEquals(row.getRowNum(), reader.getRowIndex());
+			Assert.assertEquals(row.getPhysicalNumberOfCells(), cells.size());
+			for (Cell cell : row) {
+				Assert.assertEquals(excel.getCellValue(cell), cells.get(cell.getColumnIndex()));
+			}
+			count++;
+		}
+		Assert.assertFalse(rows.hasNext());
+		Assert.assertEquals(2, count);
+
+		// loaded workbook is used instead of streaming
+		Assert.assertNull(excel.openSheetReader("data"));
+	}
+
+	@Test
+	public void testSheetIndex() throws Exception {
+		File file = createFile(true);
+		XlsxSheetReader reader = new ExcelFile(file).openSheetReader("2");
+		Assert.assertEquals("name", reader.next().get(0));
+		reader.close();
+
+		reader = new ExcelFile(file).openSheetReader(null);
+		Assert.assertEquals("not me", reader.next().get(0));
+		reader.close();
+	}
+
+	@Test(expected = PaxmlRuntimeException.class)
+	public void testFormulaWithoutResult() throws Exception {
+		XlsxSheetReader reader = new ExcelFile(createFile(false)).openSheetReader("data");
+		while (reader.hasNext()) {
+			reader.next();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.test;
+
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.paxml.core.IEntity;
+import org.paxml.launch.Paxml;
+import org.paxml.tag.ConstTag;
+import org.paxml.tag.ITag;
+
+public class ConstTagTest {
+
+	private ConstTag findConst(IEntity entity, String id) {
+		for (ITag tag : ((ITag) entity).getChildren()) {
+			if (tag instanceof ConstTag && tag.getIdExpression() != null && id.equals(tag.getIdExpression().getId(null))) {
+				return (ConstTag) tag;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testStaticDataFolded() {
+		Paxml paxml = new Paxml(0, -1);
+		paxml.addTagLibrary(MyTagLibrary.class);
+		paxml.addResources(paxml.getResourceLocator().findResources("classpath:selftest/**/*.xml", null));
+
+		final String name = "constFoldingTest";
+		IEntity entity = paxml.getEntity(name);
+		Assert.assertTrue(findConst(entity, "folded").isFolded());
+		Assert.assertFalse(findConst(entity, "notFolded").isFolded());
+
+		// the 2nd execution asserts that the 1st one did not change the
+		// precomputed value
+		paxml.execute(entity, System.getProperties(), new Properties());
+		paxml.execute(entity, System.getProperties(), new Properties());
+	}
+}
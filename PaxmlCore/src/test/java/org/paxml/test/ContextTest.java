@@ -0,0 +1,123 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.test;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.paxml.core.Context;
+import org.paxml.core.ObjectTree;
+import org.paxml.tag.ScenarioEntityFactory.Scenario;
+
+public class ContextTest {
+
+	@Test
+	public void testConstLookupAfterChanges() {
+		Context root = new Context(null, 0);
+		root.setConst("a", null, 1, false);
+		Context middle = new Context(root);
+		Context leaf = new Context(middle);
+
+		Assert.assertEquals(1, leaf.getConst("a", true));
+		Assert.assertSame(root, leaf.findConstContext("a"));
+		Assert.assertNull(leaf.getConst("b", true));
+
+		// changing the value of a resolved id
+		root.setConst("a", null, 2, false);
+		Assert.assertEquals(2, leaf.getConst("a", true));
+
+		// shadowing a resolved id
+		middle.setConst("a", null, 3, false);
+		Assert.assertEquals(3, leaf.getConst("a", true));
+		Assert.assertSame(middle, leaf.findConstContext("a"));
+
+		// adding an id that was not found before
+		root.addConst("b", null, 4, false);
+		Assert.assertTrue(leaf.hasConstId("b", true));
+		Assert.assertFalse(leaf.hasConstId("b", false));
+
+		// removing the shadowing id
+		middle.removeConst("a");
+		Assert.assertEquals(2, leaf.getConst("a", true));
+	}
+
+	@Test
+	public void testXpathAfterChanges() {
+		Context root = new Context(null, 0);
+		root.setConst("a", "a", "1", false);
+		Context loop = new Context(root);
+		Context leaf = new Context(loop);
+		Assert.assertEquals("1", leaf.xpathSelect("a"));
+
+		for (int i = 0; i < 3; i++) {
+			loop.setConst("var", "var", String.valueOf(i), false);
+			Assert.assertEquals(String.valueOf(i), leaf.xpathSelect("var"));
+		}
+
+		// changes outside the ancestors do not matter, changes in them do
+		new Context(loop).setConst("other", "other", "2", false);
+		Assert.assertNull(leaf.xpathSelect("other"));
+		root.setConst("a", "a", "3", false);
+		Assert.assertEquals("3", leaf.xpathSelect("a"));
+	}
+
+	@Test
+	public void testXpathResultsAreCopies() {
+		Context root = new Context(null, 0);
+		ObjectTree data = new ObjectTree("data");
+		data.put("a", 1);
+		root.setConst("data", "data", data, false);
+		Context leaf = new Context(new Context(root));
+
+		ObjectTree selected = (ObjectTree) leaf.xpathSelect("data");
+		selected.put("a", 2);
+		Assert.assertEquals(1, ((ObjectTree) root.getConst("data", false)).get("a"));
+		Assert.assertEquals(1, leaf.xpathSelect("data/a"));
+		Assert.assertEquals(1, ((ObjectTree) leaf.xpathSelect("data")).get("a"));
+
+		// changes made inside the const are seen
+		((ObjectTree) root.getConst("data", false)).put("a", 3);
+		Assert.assertEquals(3, leaf.xpathSelect("data/a"));
+	}
+
+	@Test
+	public void testCloseablesOwnedByEntity() throws IOException {
+		Context root = new Context(null, 0);
+		Context outer = new Context(root);
+		outer.setEntity(new Scenario());
+		final File temp = File.createTempFile("paxml-context-", ".tmp");
+		new Context(outer).registerCloseable(new Closeable() {
+			public void close() {
+				FileUtils.deleteQuietly(temp);
+			}
+		});
+
+		// a called entity exits
+		Context called = new Context(new Context(outer));
+		called.setEntity(new Scenario());
+		called.closeAllCloseables();
+		Assert.assertTrue(temp.exists());
+
+		// the registering entity exits
+		outer.closeAllCloseables();
+		Assert.assertFalse(temp.exists());
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.paxml.core.Context;
+import org.paxml.util.DBUtils;
+import org.paxml.util.DataSourceRegistry;
+import org.paxml.util.DataSourceRegistry.PoolSettings;
+import org.paxml.util.MeteredDataSource;
+
+public class DataSourceRegistryTest {
+
+	@Test
+	public void testPoolAndMetrics() throws Exception {
+		DataSourceRegistry registry = new DataSourceRegistry();
+		try {
+			Context context = new Context(null, 0);
+			context.setConst(DataSourceRegistry.MAX_ACTIVE_CONST, null, "3", false);
+			final String url = "jdbc:h2:mem:registryTest";
+			MeteredDataSource ds = registry.getDataSource(DBUtils.H2_DRIVER_CLASS, url, "sa", "secret", new Context(context));
+			Assert.assertSame(ds, registry.getDataSource(DBUtils.H2_DRIVER_CLASS, url, "sa", "secret", new Context(context)));
+			Assert.assertNotSame(ds, registry.getDataSource(DBUtils.H2_DRIVER_CLASS, url, "sa", "other", new Context(context)));
+			Assert.assertEquals(3, ds.getMaxActive());
+
+			// other settings get another pool, the existing one is not changed
+			MeteredDataSource defaults = registry.getDataSource(DBUtils.H2_DRIVER_CLASS, url, "sa", "secret", new PoolSettings());
+			Assert.assertNotSame(ds, defaults);
+			Assert.assertEquals(DataSourceRegistry.DEFAULT_MAX_ACTIVE, defaults.getMaxActive());
+			Assert.assertEquals(3, ds.getMaxActive());
+
+			Connection con = ds.getConnection();
+			Map<String, Object> metrics = ds.getMetrics();
+			Assert.assertEquals(1, metrics.get("numActive"));
+			Assert.assertEquals(1L, metrics.get("borrows"));
+			long sum = 0;
+			for (Object count : ((Map<?, ?>) metrics.get("borrowLatencyMs")).values()) {
+				sum += (Long) count;
+			}
+			Assert.assertEquals(1, sum);
+			Assert.assertEquals(3, registry.getMetrics().size());
+
+			con.close();
+
+			registry.closeAll();
+			Assert.assertEquals(0, registry.size());
+		} finally {
+			registry.closeAll();
+		}
+	}
+
+	@Test
+	public void testPoolsClosedAfterRuns() throws Exception {
+		DataSourceRegistry registry = new DataSourceRegistry();
+		try {
+			File dbFile = File.createTempFile("paxml-registry-", "");
+			dbFile.deleteOnExit();
+			registry.startRun();
+			registry.startRun();
+			MeteredDataSource mem = registry.getDataSource(DBUtils.H2_DRIVER_CLASS, "jdbc:h2:mem:registryRunTest", "sa", null, new PoolSettings());
+			MeteredDataSource file = registry.getDataSource(DBUtils.H2_DRIVER_CLASS, "jdbc:h2:" + dbFile.getAbsolutePath(), "sa", null, new PoolSettings());
+			file.getConnection().close();
+
+			// another run is still running
+			registry.endRun();
+			Assert.assertEquals(2, registry.size());
+
+			// the last run ends, in-memory databases are kept
+			registry.endRun();
+			Assert.assertEquals(1, registry.size());
+			Assert.assertSame(mem, registry.getDataSource(DBUtils.H2_DRIVER_CLASS, "jdbc:h2:mem:registryRunTest", "sa", null, new PoolSettings()));
+			try {
+				file.getConnection();
+				Assert.fail("The pool should be closed");
+			} catch (SQLException e) {
+				// expected
+			}
+		} finally {
+			registry.closeAll();
+		}
+	}
+}
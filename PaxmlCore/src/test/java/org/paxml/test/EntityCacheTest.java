@@ -0,0 +1,78 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.paxml.core.EntityCache;
+import org.paxml.core.IEntity;
+import org.paxml.core.ResourceLocator;
+import org.paxml.launch.Paxml;
+
+public class EntityCacheTest {
+
+	private Paxml createPaxml(EntityCache cache) {
+		Paxml paxml = new Paxml(0, -1);
+		paxml.getParser().setEntityCache(cache);
+		paxml.addTagLibrary(MyTagLibrary.class);
+		paxml.addResources(ResourceLocator.findResources("classpath:selftest/**/*.xml", null));
+		return paxml;
+	}
+
+	@Test
+	public void testSharedAcrossPaxml() {
+		EntityCache cache = new EntityCache();
+
+		IEntity e1 = createPaxml(cache).getEntity("invokeReturnTest");
+		IEntity e2 = createPaxml(cache).getEntity("invokeReturnTest");
+		Assert.assertNotNull(e1);
+		Assert.assertSame(e1, e2);
+		Assert.assertTrue(cache.size() > 0);
+
+		IEntity e3 = createPaxml(null).getEntity("invokeReturnTest");
+		Assert.assertNotSame(e1, e3);
+	}
+
+	@Test
+	public void testKeyedByTagLibraries() {
+		EntityCache cache = new EntityCache();
+
+		IEntity e1 = createPaxml(cache).getEntity("invokeReturnTest");
+
+		Paxml other = new Paxml(0, -1);
+		other.getParser().setEntityCache(cache);
+		other.addResources(ResourceLocator.findResources("classpath:selftest/**/*.xml", null));
+		IEntity e2 = other.getEntity("invokeReturnTest");
+
+		Assert.assertNotSame(e1, e2);
+	}
+
+	@Test
+	public void testKeyedByResources() {
+		EntityCache cache = new EntityCache();
+
+		IEntity e1 = createPaxml(cache).getEntity("invokeReturnTest");
+
+		Paxml other = new Paxml(0, -1);
+		other.getParser().setEntityCache(cache);
+		other.addTagLibrary(MyTagLibrary.class);
+		other.addResources(ResourceLocator.findResources("classpath:selftest/*eturnTest.xml", null));
+		IEntity e2 = other.getEntity("invokeReturnTest");
+
+		Assert.assertNotSame(e1, e2);
+	}
+}
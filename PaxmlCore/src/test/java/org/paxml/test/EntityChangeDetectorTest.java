@@ -0,0 +1,115 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.test;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.paxml.core.EntityChangeDetectors;
+import org.paxml.core.FileMonitorChangeDetector;
+import org.paxml.core.IEntity;
+import org.paxml.core.IEntityChangeDetector;
+import org.paxml.core.IntervalChangeDetector;
+import org.paxml.core.ResourceLocator;
+import org.paxml.launch.Paxml;
+
+public class EntityChangeDetectorTest {
+
+	private static final String NAME = "changeDetectorTest";
+
+	private File writeEntity(String dirName) throws Exception {
+		File dir = new File("target", dirName).getAbsoluteFile();
+		FileUtils.deleteQuietly(dir);
+		File file = new File(dir, NAME + ".xml");
+		FileUtils.writeStringToFile(file, "<scenario><data id=\"v\">1</data></scenario>", "UTF-8");
+		file.setLastModified(file.lastModified() - 60000);
+		return file;
+	}
+
+	private Paxml createPaxml(File file, IEntityChangeDetector detector) {
+		Paxml paxml = new Paxml(0, -1);
+		paxml.getParser().setChangeDetector(detector);
+		paxml.addResources(ResourceLocator.findResources("file:" + file.getParent() + "/*.xml", null));
+		return paxml;
+	}
+
+	private void touch(File file) throws Exception {
+		FileUtils.writeStringToFile(file, "<scenario><data id=\"v\">2</data></scenario>", "UTF-8");
+		file.setLastModified(file.lastModified() + 60000);
+	}
+
+	@Test
+	public void testAlwaysAndFrozen() throws Exception {
+		File file = writeEntity("changeDetectorTest/always");
+		Paxml always = createPaxml(file, EntityChangeDetectors.ALWAYS);
+		Paxml frozen = createPaxml(file, EntityChangeDetectors.FROZEN);
+		IEntity a1 = always.getEntity(NAME);
+		IEntity f1 = frozen.getEntity(NAME);
+		Assert.assertSame(a1, always.getEntity(NAME));
+		Assert.assertFalse(frozen.getParser().isCheckModified());
+
+		touch(file);
+		Assert.assertNotSame(a1, always.getEntity(NAME));
+		Assert.assertSame(f1, frozen.getEntity(NAME));
+	}
+
+	@Test
+	public void testInterval() throws Exception {
+		File file = writeEntity("changeDetectorTest/interval");
+		Paxml paxml = createPaxml(file, new IntervalChangeDetector(60000));
+		IEntity e1 = paxml.getEntity(NAME);
+		Assert.assertSame(e1, paxml.getEntity(NAME));
+		touch(file);
+		Assert.assertSame(e1, paxml.getEntity(NAME));
+
+		paxml = createPaxml(file, new IntervalChangeDetector(0));
+		e1 = paxml.getEntity(NAME);
+		touch(file);
+		Assert.assertNotSame(e1, paxml.getEntity(NAME));
+	}
+
+	@Test
+	public void testMonitor() throws Exception {
+		File file = writeEntity("changeDetectorTest/monitor");
+		FileMonitorChangeDetector detector = new FileMonitorChangeDetector(50);
+		try {
+			Paxml paxml = createPaxml(file, detector);
+			IEntity e1 = paxml.getEntity(NAME);
+			Assert.assertSame(e1, paxml.getEntity(NAME));
+
+			touch(file);
+			IEntity e2 = e1;
+			for (int i = 0; i < 100 && e2 == e1; i++) {
+				Thread.sleep(50);
+				e2 = paxml.getEntity(NAME);
+			}
+			Assert.assertNotSame(e1, e2);
+			Assert.assertSame(e2, paxml.getEntity(NAME));
+		} finally {
+			detector.close();
+		}
+	}
+
+	@Test
+	public void testCreate() {
+		Assert.assertSame(EntityChangeDetectors.FROZEN, EntityChangeDetectors.create("frozen"));
+		Assert.assertSame(EntityChangeDetectors.ALWAYS, EntityChangeDetectors.create("always"));
+		Assert.assertEquals(500, ((IntervalChangeDetector) EntityChangeDetectors.create("interval:500")).getInterval());
+	}
+}
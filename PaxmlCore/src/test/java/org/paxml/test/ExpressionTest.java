@@ -20,6 +20,7 @@ import junit.framework.Assert;
 
 import org.junit.Test;
 import org.paxml.core.Context;
+import org.paxml.el.ExpressionCache;
 import org.paxml.el.ExpressionFactory;
 
 public class ExpressionTest {
@@ -30,6 +31,16 @@ public class ExpressionTest {
          test(" a \\r ${'b '} "," a \\r b  ");
     }
     
+    @Test
+    public void testCache() {
+        ExpressionCache cache = ExpressionFactory.getCache();
+        final String exp = " x ${'cached'} ";
+        final long misses = cache.getMisses();
+        Assert.assertSame(ExpressionFactory.create(exp), ExpressionFactory.create(exp));
+        Assert.assertEquals(misses + 1, cache.getMisses());
+        Assert.assertTrue(cache.getHits() > 0);
+    }
+
     private void test(String exp, Object expected){
         Object actual=ExpressionFactory.create(exp).evaluate(new Context(null,0));
         Assert.assertEquals(expected, actual);
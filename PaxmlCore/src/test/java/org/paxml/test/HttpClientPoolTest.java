@@ -0,0 +1,103 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.paxml.core.Context;
+import org.paxml.util.HttpClientPool;
+import org.paxml.util.HttpClientRequestFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpClientPoolTest {
+
+	@Test
+	public void testPoolPerSettings() {
+		Context context = new Context(null, 0);
+		context.setConst(HttpClientPool.MAX_CONNECTIONS_PER_HOST_CONST, null, "5", false);
+		context.setConst(HttpClientPool.MAX_TOTAL_CONNECTIONS_CONST, null, "50", false);
+		Context execution = new Context(context);
+		HttpClientPool pool = HttpClientPool.getPool(execution);
+		try {
+			Assert.assertEquals(5, pool.getMetrics().get("maxConnectionsPerHost"));
+			Assert.assertEquals(50, pool.getMetrics().get("maxTotalConnections"));
+			Assert.assertSame(pool, HttpClientPool.getPool(execution));
+			Assert.assertSame(pool, HttpClientPool.getPool(new Context(context)));
+			Assert.assertSame(pool.getHttpClient(), HttpClientPool.getHttpClient(execution));
+
+			Context other = new Context(null, 0);
+			other.setConst(HttpClientPool.MAX_CONNECTIONS_PER_HOST_CONST, null, "6", false);
+			HttpClientPool otherPool = HttpClientPool.getPool(new Context(other));
+			Assert.assertNotSame(pool, otherPool);
+			Assert.assertEquals(6, otherPool.getMetrics().get("maxConnectionsPerHost"));
+			otherPool.shutdown();
+
+			Assert.assertSame(HttpClientPool.getDefaultPool(), HttpClientPool.getPool((Context) null));
+			Assert.assertEquals(HttpClientPool.DEFAULT_MAX_CONNECTIONS_PER_HOST,
+					HttpClientPool.getDefaultPool().getMetrics().get("maxConnectionsPerHost"));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testRestOverPool() throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/echo", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				byte[] body = ("echo:" + exchange.getRequestMethod()).getBytes("UTF-8");
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+		// one connection, reused by each call
+		HttpClientPool.PoolSettings settings = new HttpClientPool.PoolSettings();
+		settings.setMaxConnectionsPerHost(1);
+		HttpClientPool pool = new HttpClientPool(settings);
+		pool.getHttpClient().getParams().setConnectionManagerTimeout(5000);
+		try {
+			RestTemplate template = new RestTemplate(new HttpClientRequestFactory(pool.getHttpClient()));
+			URI uri = new URI("http://127.0.0.1:" + server.getAddress().getPort() + "/echo");
+			for (int i = 0; i < 3; i++) {
+				ResponseEntity<String> res = template.exchange(uri, HttpMethod.POST, new HttpEntity<String>("x"), String.class);
+				Assert.assertEquals(200, res.getStatusCode().value());
+				Assert.assertEquals("echo:POST", res.getBody());
+			}
+			Assert.assertEquals("echo:GET", template.getForObject(uri, String.class));
+			Assert.assertEquals(1, pool.getMetrics().get("connectionsInPool"));
+		} finally {
+			pool.shutdown();
+			server.stop(0);
+		}
+	}
+}
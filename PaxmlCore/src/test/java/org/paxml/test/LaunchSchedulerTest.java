@@ -0,0 +1,158 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.paxml.core.PaxmlResource;
+import org.paxml.core.PaxmlRuntimeException;
+import org.paxml.launch.Group;
+import org.paxml.launch.LaunchHistory;
+import org.paxml.launch.LaunchModel;
+import org.paxml.launch.LaunchPoint;
+import org.paxml.launch.LaunchScheduler;
+
+public class LaunchSchedulerTest {
+
+	private static class SleepingModel extends LaunchModel {
+		private final AtomicInteger running = new AtomicInteger();
+		private final AtomicInteger maxRunning = new AtomicInteger();
+		private final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		public Object execute(LaunchPoint point) {
+			started.add(point.getResource().getPath());
+			int now = running.incrementAndGet();
+			synchronized (maxRunning) {
+				maxRunning.set(Math.max(now, maxRunning.get()));
+			}
+			try {
+				Thread.sleep(Long.parseLong(point.getProperties().getProperty("ms")));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				running.decrementAndGet();
+			}
+			return null;
+		}
+	}
+
+	private static List<LaunchPoint> createPoints(LaunchModel model, String group, long... durations) {
+		List<LaunchPoint> points = new ArrayList<LaunchPoint>();
+		for (int i = 0; i < durations.length; i++) {
+			Properties props = new Properties();
+			props.setProperty("ms", String.valueOf(durations[i]));
+			PaxmlResource res = PaxmlResource.createFromPath("classpath:plan/" + group + i + ".xml");
+			points.add(new LaunchPoint(model, res, group, null, props, null, i, -1));
+		}
+		return points;
+	}
+
+	@Test
+	public void testGroupConcurrency() {
+		SleepingModel model = new SleepingModel();
+		Group group = new Group("g");
+		group.getSettings().setConcurrency(1);
+		model.getGroups().put("g", group);
+
+		new LaunchScheduler(4).run(model, createPoints(model, "g", 20, 20, 20, 20).iterator());
+
+		Assert.assertEquals(4, model.started.size());
+		Assert.assertEquals(1, model.maxRunning.get());
+	}
+
+	@Test
+	public void testLongestFirst() {
+		SleepingModel model = new SleepingModel();
+		LaunchHistory history = new LaunchHistory(null);
+		List<LaunchPoint> points = createPoints(model, "h", 10, 50, 30);
+
+		new LaunchScheduler(1, 10, history).run(model, points.iterator());
+		Assert.assertEquals(points.get(0).getResource().getPath(), model.started.get(0));
+		for (LaunchPoint point : points) {
+			Assert.assertTrue(history.getDuration(point) >= 0);
+		}
+
+		model.started.clear();
+		// the order covers all points, not only the queue window
+		new LaunchScheduler(1, 1, history).run(model, points.iterator());
+		Assert.assertEquals(points.get(1).getResource().getPath(), model.started.get(0));
+		Assert.assertEquals(points.get(2).getResource().getPath(), model.started.get(1));
+		Assert.assertEquals(points.get(0).getResource().getPath(), model.started.get(2));
+	}
+
+	@Test
+	public void testSourceFailure() {
+		SleepingModel model = new SleepingModel();
+		final Iterator<LaunchPoint> points = createPoints(model, "f", 10, 10, 10).iterator();
+		Iterator<LaunchPoint> source = new Iterator<LaunchPoint>() {
+			private int count;
+
+			@Override
+			public boolean hasNext() {
+				return points.hasNext();
+			}
+
+			@Override
+			public LaunchPoint next() {
+				LaunchPoint point = points.next();
+				if (count++ == 1) {
+					throw new PaxmlRuntimeException("Cannot create launch point");
+				}
+				return point;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+
+		new LaunchScheduler(1).run(model, source);
+		Assert.assertEquals(2, model.started.size());
+	}
+
+	@Test
+	public void testHistoryBounded() throws Exception {
+		File file = new File("target/launchSchedulerTest/history.properties");
+		FileUtils.deleteQuietly(file);
+		SleepingModel model = new SleepingModel();
+		List<LaunchPoint> points = createPoints(model, "b", 1, 1, 1);
+
+		LaunchHistory history = new LaunchHistory(file, 2);
+		new LaunchScheduler(1, 10, history).run(model, points.iterator());
+		Assert.assertTrue(file.isFile());
+
+		history = new LaunchHistory(file, 2);
+		int kept = 0;
+		for (LaunchPoint point : points) {
+			if (history.getDuration(point) >= 0) {
+				kept++;
+			}
+		}
+		Assert.assertEquals(2, kept);
+	}
+}
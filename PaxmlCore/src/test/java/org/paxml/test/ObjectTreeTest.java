@@ -17,11 +17,19 @@
 package org.paxml.test;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import junit.framework.Assert;
 
 import org.junit.Test;
+import org.paxml.core.ObjectList;
 import org.paxml.core.ObjectTree;
 
 public class ObjectTreeTest {
@@ -43,4 +51,155 @@ public class ObjectTreeTest {
         Assert.assertEquals(list.get(2), 3);
 
     }
+
+    @Test
+    public void testCopyOnWrite() {
+        ObjectTree tree = new ObjectTree(null);
+        ObjectTree sub = new ObjectTree("sub");
+        sub.put("a", 1);
+        tree.put("sub", sub);
+        tree.put("list", new ObjectList("list", false, 1, sub));
+
+        ObjectTree copy = tree.copy();
+        ((ObjectTree) copy.get("sub")).put("a", 2);
+        ((ObjectTree) ((ObjectList) copy.get("list")).get(1)).put("b", 3);
+        ((ObjectList) copy.get("list")).add(4);
+
+        Assert.assertEquals(1, ((ObjectTree) tree.get("sub")).get("a"));
+        Assert.assertEquals(2, ((ObjectTree) copy.get("sub")).get("a"));
+        ObjectList list = (ObjectList) tree.get("list");
+        Assert.assertEquals(2, list.size());
+        Assert.assertNull(((ObjectTree) list.get(1)).get("b"));
+        Assert.assertEquals(3, ((ObjectTree) ((ObjectList) copy.get("list")).get(1)).get("b"));
+    }
+
+    @Test
+    public void testCopyIsolatedThroughIteration() {
+        ObjectTree tree = new ObjectTree(null);
+        ObjectTree sub = new ObjectTree("sub");
+        sub.put("a", 1);
+        tree.put("sub", sub);
+        tree.put("list", new ObjectList("list", false, sub));
+
+        ObjectTree copy = tree.copy();
+        for (Object value : copy.values()) {
+            if (value instanceof ObjectTree) {
+                ((ObjectTree) value).put("a", 2);
+            } else {
+                for (Object item : (ObjectList) value) {
+                    ((ObjectTree) item).put("b", 3);
+                }
+            }
+        }
+
+        Assert.assertEquals(1, ((ObjectTree) tree.get("sub")).get("a"));
+        Assert.assertNull(((ObjectTree) ((ObjectList) tree.get("list")).get(0)).get("b"));
+        Assert.assertEquals(2, ((ObjectTree) copy.get("sub")).get("a"));
+        Assert.assertEquals(3, ((ObjectTree) ((ObjectList) copy.get("list")).get(0)).get("b"));
+    }
+
+    @Test
+    public void testReferencesKeptThroughCopy() {
+        ObjectTree tree = new ObjectTree(null);
+        ObjectTree sub = new ObjectTree("sub");
+        sub.put("a", 1);
+        tree.put("sub", sub);
+        tree.put("list", new ObjectList("list", false, sub));
+
+        ObjectTree subRef = (ObjectTree) tree.get("sub");
+        ObjectTree itemRef = (ObjectTree) ((ObjectList) tree.get("list")).get(0);
+        Assert.assertSame(subRef, tree.get("sub"));
+
+        ObjectTree copy = tree.copy();
+        subRef.put("a", 2);
+        itemRef.put("b", 3);
+
+        Assert.assertSame(subRef, tree.get("sub"));
+        Assert.assertEquals(2, ((ObjectTree) tree.get("sub")).get("a"));
+        Assert.assertEquals(3, ((ObjectTree) ((ObjectList) tree.get("list")).get(0)).get("b"));
+        Assert.assertEquals(1, ((ObjectTree) copy.get("sub")).get("a"));
+        Assert.assertNull(((ObjectTree) ((ObjectList) copy.get("list")).get(0)).get("b"));
+        // the value put in is copied as well
+        Assert.assertEquals(1, sub.get("a"));
+    }
+
+    @Test
+    public void testCopyIsolatedThroughViews() {
+        ObjectTree tree = new ObjectTree(null);
+        ObjectTree sub = new ObjectTree("sub");
+        sub.put("a", 1);
+        tree.put("sub", sub);
+        tree.put("x", 1);
+        tree.put("y", 2);
+
+        ObjectTree copy = tree.copy();
+        for (Map.Entry<String, Object> entry : copy.entrySet()) {
+            if ("x".equals(entry.getKey())) {
+                entry.setValue(10);
+            }
+        }
+        for (Iterator<String> it = copy.keySet().iterator(); it.hasNext();) {
+            if ("y".equals(it.next())) {
+                it.remove();
+            }
+        }
+        ObjectList list = new ObjectList("list", false, 3, 1, 2);
+        copy.put("list", list);
+        ObjectList listCopy = ((ObjectList) copy.get("list")).copy();
+        Collections.sort(listCopy, null);
+        listCopy.subList(0, 1).clear();
+
+        Assert.assertEquals(1, tree.get("x"));
+        Assert.assertEquals(2, tree.get("y"));
+        Assert.assertEquals(10, copy.get("x"));
+        Assert.assertFalse(copy.containsKey("y"));
+        Assert.assertEquals(3, tree.size());
+        Assert.assertEquals(3, copy.size());
+        Assert.assertEquals(new ObjectList(null, false, 3, 1, 2), copy.get("list"));
+        Assert.assertEquals(new ObjectList(null, false, 2, 3), listCopy);
+        Assert.assertEquals(tree.get("sub"), copy.get("sub"));
+    }
+
+    @Test
+    public void testConcurrentReadsAndCopies() throws Exception {
+        final ObjectTree tree = new ObjectTree(null);
+        for (int i = 0; i < 100; i++) {
+            ObjectTree sub = new ObjectTree("sub");
+            sub.put("i", i);
+            sub.put("list", new ObjectList("list", false, i, i + 1));
+            tree.put("sub" + i, sub);
+        }
+        final ObjectTree original = tree.copy();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(pool.submit(new Callable<Integer>() {
+                    public Integer call() {
+                        int sum = 0;
+                        for (int round = 0; round < 50; round++) {
+                            ObjectTree copy = tree.copy();
+                            for (Object value : tree.values()) {
+                                ObjectTree sub = (ObjectTree) value;
+                                sum += (Integer) ((ObjectList) sub.get("list")).get(0);
+                            }
+                            ObjectTree sub = (ObjectTree) copy.get("sub" + thread);
+                            sub.put("i", -1);
+                            ((ObjectList) sub.get("list")).add(thread);
+                            Assert.assertEquals(-1, ((ObjectTree) copy.get("sub" + thread)).get("i"));
+                        }
+                        return sum;
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                Assert.assertEquals(50 * 4950, future.get().intValue());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        Assert.assertEquals(original, tree);
+        Assert.assertEquals(2, ((ObjectList) ((ObjectTree) tree.get("sub0")).get("list")).size());
+    }
 }
@@ -0,0 +1,147 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.SimpleLayout;
+import org.junit.Assert;
+import org.junit.Test;
+import org.paxml.core.Context;
+import org.paxml.log4j.PerProcessFileAppender;
+
+public class PerProcessFileAppenderTest {
+
+	@Test
+	public void testAsync() throws Exception {
+		File dir = new File("target/perProcessFileAppenderTest");
+		FileUtils.deleteQuietly(dir);
+		// tests run on the same thread, a context left by another test would
+		// route the main events to a process file
+		Context.cleanCurrentThreadContext();
+
+		PerProcessFileAppender appender = new PerProcessFileAppender();
+		appender.setName("asyncTest");
+		appender.setFile(new File(dir, "main.log").getPath());
+		appender.setLayout(new SimpleLayout());
+		appender.setAsync(true);
+		appender.setMaxOpenFiles(1);
+		appender.activateOptions();
+
+		Logger logger = Logger.getLogger(PerProcessFileAppenderTest.class.getName() + ".async");
+		logger.setAdditivity(false);
+		logger.setLevel(Level.INFO);
+		logger.addAppender(appender);
+		try {
+			logger.info("main");
+			for (long pid = 1; pid <= 3; pid++) {
+				new Context(new Properties(), pid).setAsCurrentThreadContext();
+				logger.info("process " + pid);
+				logger.info("process " + pid + " again");
+			}
+		} finally {
+			Context.cleanCurrentThreadContext();
+			logger.removeAppender(appender);
+			appender.close();
+		}
+		Assert.assertEquals(0, appender.getQueuedCount());
+		Assert.assertEquals("INFO - main", FileUtils.readFileToString(new File(dir, "main.log")).trim());
+		final String thread = Thread.currentThread().getName();
+		for (long pid = 1; pid <= 3; pid++) {
+			String log = FileUtils.readFileToString(new File(dir, pid + "." + thread + ".log"));
+			Assert.assertTrue(log, log.contains("process " + pid + "\n") || log.contains("process " + pid + "\r\n"));
+			Assert.assertTrue(log, log.contains("process " + pid + " again"));
+		}
+	}
+
+	@Test
+	public void testAsyncConcurrent() throws Exception {
+		final File dir = new File("target/perProcessFileAppenderTest/concurrent");
+		FileUtils.deleteQuietly(dir);
+		Context.cleanCurrentThreadContext();
+
+		final PerProcessFileAppender appender = new PerProcessFileAppender();
+		appender.setName("asyncConcurrentTest");
+		appender.setFile(new File(dir, "main.log").getPath());
+		appender.setLayout(new PatternLayout("%t|%c|%m%n"));
+		appender.setAsync(true);
+		appender.setQueueSize(64);
+		appender.activateOptions();
+
+		// log4j serializes the events of one logger, so each thread logs
+		// through its own logger sharing the appender
+		final int threads = 8;
+		final int events = 5000;
+		final List<Logger> loggers = new ArrayList<Logger>();
+		for (int i = 1; i <= threads; i++) {
+			Logger logger = Logger.getLogger(PerProcessFileAppenderTest.class.getName() + ".concurrent" + i);
+			logger.setAdditivity(false);
+			logger.setLevel(Level.INFO);
+			logger.addAppender(appender);
+			loggers.add(logger);
+		}
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> list = new ArrayList<Thread>();
+		try {
+			for (int i = 1; i <= threads; i++) {
+				final long pid = i;
+				final Logger logger = loggers.get(i - 1);
+				Thread t = new Thread("logger" + i) {
+					@Override
+					public void run() {
+						new Context(new Properties(), pid).setAsCurrentThreadContext();
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						for (int j = 0; j < events; j++) {
+							logger.info("process " + pid + " event " + j);
+						}
+					}
+				};
+				t.start();
+				list.add(t);
+			}
+			start.countDown();
+			for (Thread t : list) {
+				t.join();
+			}
+		} finally {
+			for (Logger logger : loggers) {
+				logger.removeAppender(appender);
+			}
+			appender.close();
+		}
+		Assert.assertEquals(0, appender.getQueuedCount());
+		for (int i = 1; i <= threads; i++) {
+			List<String> lines = FileUtils.readLines(new File(dir, i + ".logger" + i + ".log"));
+			Assert.assertEquals(events, lines.size());
+			for (int j = 0; j < events; j++) {
+				Assert.assertEquals("logger" + i + "|" + loggers.get(i - 1).getName() + "|process " + i + " event " + j, lines.get(j));
+			}
+		}
+	}
+}
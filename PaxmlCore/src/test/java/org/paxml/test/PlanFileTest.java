@@ -16,6 +16,7 @@
  */
 package org.paxml.test;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 
@@ -219,6 +220,18 @@ public class PlanFileTest {
 
 	}
 
+	@Test
+	public void testIterateLaunchPoints() {
+		LaunchModel model = Paxml.executePlanFile("plan/1.xml", System.getProperties());
+		List<LaunchPoint> points = model.getLaunchPoints(false, -1);
+		Iterator<LaunchPoint> it = model.iterateLaunchPoints(-1);
+		for (LaunchPoint point : points) {
+			Assert.assertTrue(it.hasNext());
+			assertPoint(point, it.next());
+		}
+		Assert.assertFalse(it.hasNext());
+	}
+
 	private void assertPoint(LaunchPoint ep, LaunchPoint ap) {
 		Assert.assertEquals(ep.getResource().getName(), ap.getResource().getName());
 		Assert.assertEquals(ep.getFactors(), ap.getFactors());
@@ -16,7 +16,13 @@
  */
 package org.paxml.test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.script.Bindings;
 import javax.script.ScriptContext;
@@ -25,10 +31,12 @@ import javax.script.ScriptEngineManager;
 import javax.script.SimpleBindings;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.junit.Assert;
 import org.junit.Test;
+import org.paxml.core.PaxmlRuntimeException;
 import org.paxml.launch.LaunchModel;
 import org.paxml.launch.LaunchPoint;
 import org.paxml.launch.Paxml;
@@ -85,4 +93,46 @@ public class SelfTest {
         Assert.assertEquals(result, paxml.execute(name, System.getProperties(), props));
     }
 
+    @Test
+    public void testFailingSqlBatch() {
+        Paxml paxml = new Paxml(0, -1);
+        paxml.addResources(paxml.getResourceLocator().findResources("classpath:selftestInvalid/sqlBatchTest.xml", null));
+        try {
+            paxml.execute("sqlBatchTest", System.getProperties(), new Properties());
+            Assert.fail("The failing batch sent on exit should fail the scenario");
+        } catch (PaxmlRuntimeException e) {
+            Assert.assertTrue(ExceptionUtils.getStackTrace(e).contains("Cannot execute sql batch"));
+        }
+    }
+
+    @Test
+    public void testConcurrentExecution() throws Exception {
+        final Paxml paxml = new Paxml(0, -1);
+
+        paxml.addTagLibrary(MyTagLibrary.class);
+        paxml.addResources(paxml.getResourceLocator().findResources("classpath:selftest/**/*.xml", null));
+
+        final String name = "invokeReturnTest";
+        final Object result = "this is ok!!";
+        // parse once, then share the parsed tags among the threads
+        Assert.assertEquals(result, paxml.execute(name, System.getProperties(), new Properties()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(pool.submit(new Callable<Object>() {
+                public Object call() {
+                    return paxml.execute(name, System.getProperties(), new Properties());
+                }
+            }));
+        }
+        try {
+            for (Future<Object> future : futures) {
+                Assert.assertEquals(result, future.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
 }
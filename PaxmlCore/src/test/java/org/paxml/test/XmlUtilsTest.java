@@ -0,0 +1,48 @@
+/**
+ * This file is part of PaxmlCore.
+ *
+ * PaxmlCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PaxmlCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with PaxmlCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.paxml.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.paxml.util.XmlUtils;
+
+public class XmlUtilsTest {
+
+	@Test
+	public void testStreamingSameAsString() throws Exception {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("a", 1);
+		map.put("b", Arrays.asList("x", "y"));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XmlUtils.toJson(map, out);
+		Assert.assertEquals(XmlUtils.toJson(map), out.toString("UTF-8"));
+		Assert.assertEquals(map, XmlUtils.fromJson(out.toString("UTF-8")));
+
+		StringWriter writer = new StringWriter();
+		XmlUtils.toXml(map, "root", null, writer);
+		Assert.assertEquals(XmlUtils.toXml(map, "root", null), writer.toString());
+		Assert.assertTrue(writer.toString().startsWith("<root>"));
+		Assert.assertTrue(XmlUtils.toXml(map, "other", null).startsWith("<other>"));
+	}
+}
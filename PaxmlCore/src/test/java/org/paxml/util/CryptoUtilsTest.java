@@ -54,6 +54,33 @@ public class CryptoUtilsTest {
 		Assert.assertEquals(keyValue, got);
 	}
 
+	@Test
+	public void testKeyStoreCache() {
+
+		final String pwd = "pass";
+
+		CryptoUtils.setKey(store, pwd, "k1", null, "v1");
+		CryptoUtils.setKey(store, pwd, "k2", null, "v2");
+		Assert.assertEquals("v1", CryptoUtils.getKey(store, pwd, "k1", null));
+		Assert.assertEquals("v2", CryptoUtils.getKey(store, pwd, "k2", null));
+
+		CryptoUtils.deleteKey(store, pwd, "k1");
+		Assert.assertNull(CryptoUtils.getKey(store, pwd, "k1", null));
+		Assert.assertEquals("v2", CryptoUtils.getKey(store, pwd, "k2", null));
+
+		// the cached key store is not usable with a wrong password
+		try {
+			CryptoUtils.getKey(store, pwd + "x", "k2", null);
+			Assert.fail("Should not read key store with wrong password");
+		} catch (RuntimeException e) {
+			// expected
+		}
+
+		// deleting the key store drops the cached one
+		CryptoUtils.deleteKeyStore(store);
+		Assert.assertNull(CryptoUtils.getKey(store, pwd, "k2", null));
+	}
+
 	//@Test 
 	public void testContextSecret() {
 		//CryptoUtils.deleteKeyStore(CryptoUtils.DEFAULT_KEY_STORE_NAME);
@@ -16,18 +16,25 @@
  */
 package org.paxml.testng;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.paxml.core.Context;
@@ -67,6 +74,7 @@ public abstract class AbstractPaxmlTestResult {
 	}
 
 	private static final Log log = LogFactory.getLog(AbstractPaxmlTestResult.class);
+	private static final ConcurrentMap<Class<?>, JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<Class<?>, JAXBContext>();
 
 	private final long processId;
 	private final File outputDir;
@@ -278,12 +286,7 @@ public abstract class AbstractPaxmlTestResult {
 	}
 
 	public File writeReportFile(Object tr, boolean index) {
-		String str = null;
-		if (resultType == ResultType.JSON) {
-			str = XmlUtils.toJson(tr);
-		} else if (resultType == ResultType.XML) {
-			str = serializeXml(tr);
-		} else {
+		if (resultType != ResultType.JSON && resultType != ResultType.XML) {
 			throw new RuntimeException("Unknown result type: " + resultType);
 		}
 		if (null != outputDir) {
@@ -300,10 +303,20 @@ public abstract class AbstractPaxmlTestResult {
 			}
 
 			outputDir.mkdirs();
+			// stream straight into the file instead of building a string first
+			OutputStream out = null;
 			try {
-				FileUtils.writeStringToFile(file, str, "UTF-8");
+				out = new BufferedOutputStream(new FileOutputStream(file));
+				if (resultType == ResultType.JSON) {
+					XmlUtils.toJson(tr, out);
+				} else {
+					serializeXml(tr, out);
+				}
+				out.close();
 			} catch (IOException e) {
 				throw new RuntimeException(e);
+			} finally {
+				IOUtils.closeQuietly(out);
 			}
 
 			return file;
@@ -322,21 +335,48 @@ public abstract class AbstractPaxmlTestResult {
 
 	}
 
-
 	public static String serializeXml(Object obj) {
 		final String encoding = "UTF-8";
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		serializeXml(obj, out);
 		try {
-			JAXBContext c = JAXBContext.newInstance(obj.getClass());
-			Marshaller m = c.createMarshaller();
-			m.setProperty(Marshaller.JAXB_ENCODING, encoding);
-			m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+			return out.toString(encoding);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
 
-			ByteArrayOutputStream out = new ByteArrayOutputStream();
+	/**
+	 * Serialize a jaxb object into a stream in UTF-8.
+	 * 
+	 * @param obj
+	 *            the jaxb object
+	 * @param out
+	 *            the stream, not closed by this method
+	 */
+	public static void serializeXml(Object obj, OutputStream out) {
+		try {
+			Marshaller m = getJaxbContext(obj.getClass()).createMarshaller();
+			m.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+			m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
 			m.marshal(obj, out);
-			return out.toString(encoding);
 		} catch (Exception e) {
 			throw new RuntimeException("Cannot serialize jaxb object of class: " + obj.getClass(), e);
 		}
 	}
 
+	private static JAXBContext getJaxbContext(Class<?> clazz) throws JAXBException {
+		// jaxb contexts are thread safe and expensive to create, marshallers
+		// are neither
+		JAXBContext c = JAXB_CONTEXTS.get(clazz);
+		if (c == null) {
+			c = JAXBContext.newInstance(clazz);
+			JAXBContext existing = JAXB_CONTEXTS.putIfAbsent(clazz, c);
+			if (existing != null) {
+				c = existing;
+			}
+		}
+		return c;
+	}
+
 }
@@ -20,6 +20,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import javax.servlet.GenericServlet;
@@ -33,15 +35,26 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.paxml.core.Context;
 import org.paxml.core.EntityFactoryRegistry;
+import org.paxml.core.IEntity;
 import org.paxml.core.PaxmlResource;
+import org.paxml.launch.LaunchModel;
 import org.paxml.launch.LaunchModelBuilder;
+import org.paxml.launch.Paxml;
 import org.paxml.launch.PaxmlRunner;
 import org.paxml.launch.StaticConfig;
+import org.paxml.tag.plan.PlanEntityFactory.Plan;
+import org.paxml.tag.plan.PlanTagLibrary;
+import org.paxml.util.PaxmlUtils;
 
 /**
  * Servlet that renders paxml execution result as HTML response or serve static
- * content if not found as paxml.
+ * content if not found as paxml. The paxml resources are parsed once into a
+ * long lived paxml runtime, and each request only gets a new context and
+ * execution id.
  * 
  * @author Xuetao Niu
  * 
@@ -51,14 +64,19 @@ public class PaxmlServlet extends GenericServlet {
 	public static final String CONFIG_TAG_LIB = "tagLibrary";
 	public static final String CONFIG_PAXML_DIR = "paxmlDir";
 	public static final String CONFIG_RES_DIR = "resourceDir";
+	public static final String CONFIG_CHECK_MODIFIED = "checkModified";
 	public static final String CONFIG_VALUE_SEP = "," + File.pathSeparator;
 
+	private static final Log log = LogFactory.getLog(PaxmlServlet.class);
+
 	static {
 		EntityFactoryRegistry.getDefaultRegistry().register(new PageFactory());
 	}
 
 	private final StaticConfig config = new StaticConfig();
 	private final Set<File> resources = new LinkedHashSet<File>();
+	private final Properties systemProperties = new Properties();
+	private Paxml paxml;
 
 	@Override
 	public void service(ServletRequest request, ServletResponse response) throws ServletException, IOException {
@@ -69,15 +87,9 @@ public class PaxmlServlet extends GenericServlet {
 		String fn = FilenameUtils.getName(uri);
 		String bn = FilenameUtils.getBaseName(fn);
 
-		boolean found = false;
-		for (PaxmlResource res : config.getResources()) {
-			if (bn.equals(res.getName())) {
-				found = true;
-				break;
-			}
-		}
-		if (found) {
-			Object result = PaxmlRunner.run(bn, req.getParameterMap(), config);
+		PaxmlResource res = paxml.getResourceLocator().getResource(bn);
+		if (res != null) {
+			Object result = execute(res, req.getParameterMap());
 			if (result != null) {				
 				rsp.setHeader("Content-Type", "text/html; charset=UTF-8");
 				rsp.getWriter().print(new HtmlBuilder(result).build());
@@ -100,6 +112,38 @@ public class PaxmlServlet extends GenericServlet {
 		rsp.sendError(404);
 	}
 
+	private Object execute(PaxmlResource res, Map<String, Object> params) {
+		IEntity entity = paxml.getParser().parse(res, false, null);
+		if (entity instanceof Plan) {
+			// plans have their own launch model
+			return PaxmlRunner.run(res.getName(), params, config);
+		}
+		// each request is an execution of its own, sharing the parsed entities
+		final long pid = LaunchModel.generateNextPid();
+		final Paxml execution = new Paxml(paxml, pid, PaxmlUtils.getNextExecutionId());
+		Context.cleanCurrentThreadContext();
+		Context context = new Context(new Context(systemProperties, pid));
+		if (params != null) {
+			context.setConsts(params, null, false);
+		}
+		return execution.execute(entity, context, true, true);
+	}
+
+	/**
+	 * Parse all paxml resources up front, so that the requests do not have to.
+	 */
+	private void parseAll() {
+		for (PaxmlResource res : config.getResources()) {
+			try {
+				paxml.getParser().parse(res, false, null);
+			} catch (Exception e) {
+				if (log.isWarnEnabled()) {
+					log.warn("Cannot parse paxml resource: " + res.getPath(), e);
+				}
+			}
+		}
+	}
+
 	@Override
 	public void init(ServletConfig c) throws ServletException {
 		try {
@@ -132,6 +176,13 @@ public class PaxmlServlet extends GenericServlet {
 			} else {
 				resources.add(new File("."));
 			}
+			systemProperties.putAll(System.getProperties());
+
+			paxml = new Paxml(LaunchModel.generateNextPid(), PaxmlUtils.getNextExecutionId());
+			paxml.addStaticConfig(config);
+			paxml.getParser().addTagLibrary(new PlanTagLibrary(), false);
+			paxml.getParser().setCheckModified(!"false".equalsIgnoreCase(c.getInitParameter(CONFIG_CHECK_MODIFIED)));
+			parseAll();
 		} catch (Exception e) {
 			throw new ServletException("Cannot init paxml servlet", e);
 		}